@@ -0,0 +1,254 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.actionlog;
+
+import net.luckperms.api.actionlog.Action;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.time.Instant;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * A filter for querying {@link LoggedAction}s from storage.
+ *
+ * <p>Storage implementations should translate the filter into a native query
+ * where possible, and use {@link #test(Action)} otherwise.</p>
+ */
+public final class ActionFilter {
+    private static final ActionFilter ANY = builder().build();
+
+    public static ActionFilter any() {
+        return ANY;
+    }
+
+    public static ActionFilter source(UUID uniqueId) {
+        return builder().source(uniqueId).build();
+    }
+
+    public static ActionFilter user(UUID uniqueId) {
+        return builder().targetType(Action.Target.Type.USER).target(uniqueId).build();
+    }
+
+    public static ActionFilter group(String name) {
+        return builder().targetType(Action.Target.Type.GROUP).targetName(name).build();
+    }
+
+    public static ActionFilter track(String name) {
+        return builder().targetType(Action.Target.Type.TRACK).targetName(name).build();
+    }
+
+    public static ActionFilter search(String query) {
+        return builder().search(query).build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // all criteria are optional, and are combined with AND
+    private final @Nullable UUID sourceUniqueId;
+    private final Action.Target.@Nullable Type targetType;
+    private final @Nullable UUID targetUniqueId;
+    private final @Nullable String targetName;
+    private final @Nullable Instant after;
+    private final @Nullable Instant before;
+    private final @Nullable String search;
+
+    private ActionFilter(Builder builder) {
+        this.sourceUniqueId = builder.sourceUniqueId;
+        this.targetType = builder.targetType;
+        this.targetUniqueId = builder.targetUniqueId;
+        this.targetName = builder.targetName;
+        this.after = builder.after;
+        this.before = builder.before;
+        this.search = builder.search == null ? null : builder.search.toLowerCase();
+    }
+
+    public @Nullable UUID getSourceUniqueId() {
+        return this.sourceUniqueId;
+    }
+
+    public Action.Target.@Nullable Type getTargetType() {
+        return this.targetType;
+    }
+
+    public @Nullable UUID getTargetUniqueId() {
+        return this.targetUniqueId;
+    }
+
+    public @Nullable String getTargetName() {
+        return this.targetName;
+    }
+
+    /**
+     * Gets the (inclusive) lower bound for the action timestamp
+     *
+     * @return the lower bound
+     */
+    public @Nullable Instant getAfter() {
+        return this.after;
+    }
+
+    /**
+     * Gets the (exclusive) upper bound for the action timestamp
+     *
+     * @return the upper bound
+     */
+    public @Nullable Instant getBefore() {
+        return this.before;
+    }
+
+    /**
+     * Gets the search query, in lower case.
+     *
+     * <p>Actions match if their source name, target name or description contain
+     * the query, ignoring case.</p>
+     *
+     * @return the search query
+     */
+    public @Nullable String getSearch() {
+        return this.search;
+    }
+
+    /**
+     * Tests if the given action satisfies this filter
+     *
+     * @param action the action
+     * @return true if satisfied
+     */
+    public boolean test(Action action) {
+        if (this.sourceUniqueId != null && !this.sourceUniqueId.equals(action.getSource().getUniqueId())) {
+            return false;
+        }
+        if (this.targetType != null && this.targetType != action.getTarget().getType()) {
+            return false;
+        }
+        if (this.targetUniqueId != null && !this.targetUniqueId.equals(action.getTarget().getUniqueId().orElse(null))) {
+            return false;
+        }
+        if (this.targetName != null && !this.targetName.equals(action.getTarget().getName())) {
+            return false;
+        }
+        if (this.after != null && action.getTimestamp().isBefore(this.after)) {
+            return false;
+        }
+        if (this.before != null && !action.getTimestamp().isBefore(this.before)) {
+            return false;
+        }
+        if (this.search != null) {
+            return action.getSource().getName().toLowerCase().contains(this.search) ||
+                    action.getTarget().getName().toLowerCase().contains(this.search) ||
+                    action.getDescription().toLowerCase().contains(this.search);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ActionFilter)) return false;
+        ActionFilter that = (ActionFilter) o;
+        return Objects.equals(this.sourceUniqueId, that.sourceUniqueId) &&
+                this.targetType == that.targetType &&
+                Objects.equals(this.targetUniqueId, that.targetUniqueId) &&
+                Objects.equals(this.targetName, that.targetName) &&
+                Objects.equals(this.after, that.after) &&
+                Objects.equals(this.before, that.before) &&
+                Objects.equals(this.search, that.search);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.sourceUniqueId, this.targetType, this.targetUniqueId, this.targetName, this.after, this.before, this.search);
+    }
+
+    @Override
+    public String toString() {
+        return "ActionFilter(" +
+                "source=" + this.sourceUniqueId + ", " +
+                "targetType=" + this.targetType + ", " +
+                "target=" + this.targetUniqueId + ", " +
+                "targetName=" + this.targetName + ", " +
+                "after=" + this.after + ", " +
+                "before=" + this.before + ", " +
+                "search=" + this.search + ")";
+    }
+
+    public static final class Builder {
+        private UUID sourceUniqueId = null;
+        private Action.Target.Type targetType = null;
+        private UUID targetUniqueId = null;
+        private String targetName = null;
+        private Instant after = null;
+        private Instant before = null;
+        private String search = null;
+
+        private Builder() {
+
+        }
+
+        public Builder source(@Nullable UUID uniqueId) {
+            this.sourceUniqueId = uniqueId;
+            return this;
+        }
+
+        public Builder targetType(Action.Target.@Nullable Type type) {
+            this.targetType = type;
+            return this;
+        }
+
+        public Builder target(@Nullable UUID uniqueId) {
+            this.targetUniqueId = uniqueId;
+            return this;
+        }
+
+        public Builder targetName(@Nullable String name) {
+            this.targetName = name;
+            return this;
+        }
+
+        public Builder after(@Nullable Instant after) {
+            this.after = after;
+            return this;
+        }
+
+        public Builder before(@Nullable Instant before) {
+            this.before = before;
+            return this;
+        }
+
+        public Builder search(@Nullable String query) {
+            this.search = query;
+            return this;
+        }
+
+        public ActionFilter build() {
+            return new ActionFilter(this);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.actionlog;
+
+import com.google.common.collect.ImmutableList;
+
+import me.lucko.luckperms.common.util.PageParameters;
+import me.lucko.luckperms.common.util.Paginated;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A page of {@link LoggedAction}s matching an {@link ActionFilter}, ordered
+ * from the most recent action to the oldest.
+ */
+public final class LogPage {
+
+    public static LogPage of(List<LoggedAction> content, @Nullable PageParameters page, int totalEntries) {
+        return new LogPage(content, page, totalEntries);
+    }
+
+    /**
+     * Creates a page from all of the actions which match a filter, for storage
+     * implementations which can't query pages natively.
+     *
+     * @param matching the matching actions, in any order
+     * @param page the page to select, or null for all of the actions
+     * @return the page
+     */
+    public static LogPage fromMatching(Collection<LoggedAction> matching, @Nullable PageParameters page) {
+        List<LoggedAction> sorted = new ArrayList<>(matching);
+        sorted.sort(Comparator.reverseOrder());
+
+        if (page == null) {
+            return new LogPage(sorted, null, sorted.size());
+        }
+
+        int from = Math.min(page.getOffset(), sorted.size());
+        int to = Math.min(from + page.getPageSize(), sorted.size());
+        return new LogPage(sorted.subList(from, to), page, sorted.size());
+    }
+
+    private final List<LoggedAction> content;
+    private final @Nullable PageParameters page;
+    private final int totalEntries;
+
+    private LogPage(List<LoggedAction> content, @Nullable PageParameters page, int totalEntries) {
+        this.content = ImmutableList.copyOf(content);
+        this.page = page;
+        this.totalEntries = totalEntries;
+    }
+
+    /**
+     * Gets the actions on this page, most recent first
+     *
+     * @return the actions
+     */
+    public List<LoggedAction> getContent() {
+        return this.content;
+    }
+
+    /**
+     * Gets the actions on this page, numbered by their position in the
+     * full set of results (starting from 1 for the most recent action).
+     *
+     * @return the numbered actions
+     */
+    public List<Paginated.Entry<LoggedAction>> getNumberedContent() {
+        int offset = this.page == null ? 0 : this.page.getOffset();
+
+        List<Paginated.Entry<LoggedAction>> out = new ArrayList<>(this.content.size());
+        for (int i = 0; i < this.content.size(); i++) {
+            out.add(new Paginated.Entry<>(offset + i + 1, this.content.get(i)));
+        }
+        return out;
+    }
+
+    /**
+     * Gets the total number of actions which matched the filter, across all pages
+     *
+     * @return the total number of matching actions
+     */
+    public int getTotalEntries() {
+        return this.totalEntries;
+    }
+}
@@ -84,10 +84,9 @@ public class ApiGroup extends ApiPermissionHolder implements net.luckperms.api.m
 
     @Override
     protected void onNodeChange() {
-        // invalidate caches - they have potentially been affected by
-        // this change.
-        this.handle.getPlugin().getGroupManager().invalidateAllGroupCaches();
-        this.handle.getPlugin().getUserManager().invalidateAllUserCaches();
+        // invalidate the caches of holders inheriting from this group -
+        // they have potentially been affected by this change.
+        this.handle.getPlugin().getInheritanceIndex().invalidateInheritors(this.handle);
     }
 
     @Override
@@ -26,6 +26,7 @@
 package me.lucko.luckperms.common.backup;
 
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
 
 import me.lucko.luckperms.common.command.CommandResult;
 import me.lucko.luckperms.common.locale.message.Message;
@@ -47,29 +48,24 @@ import me.lucko.luckperms.common.web.UnsuccessfulRequestException;
 import java.io.BufferedWriter;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
-import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.text.SimpleDateFormat;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
-import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
 import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.zip.GZIPOutputStream;
 
@@ -79,6 +75,13 @@ import java.util.zip.GZIPOutputStream;
 public class Exporter implements Runnable {
     private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss z");
 
+    // the number of threads used to load users from storage
+    private static final int LOADER_THREADS = 32;
+    // the maximum number of loaded users waiting to be written
+    private static final int QUEUE_CAPACITY = 256;
+    // how often to report progress whilst exporting users
+    private static final int PROGRESS_INTERVAL_SECONDS = 5;
+
     private final LuckPermsPlugin plugin;
     private final Sender executor;
     private final Path filePath;
@@ -115,49 +118,74 @@ public class Exporter implements Runnable {
 
     @Override
     public void run() {
-        JsonObject json = new JsonObject();
-        json.add("metadata", new JObject()
+        if (this.saveFile) {
+            try (JsonWriter writer = newWriter(Files.newOutputStream(this.filePath))) {
+                write(writer);
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+                this.log.logError("Unable to write to the export file, see the console for details.");
+                return;
+            }
+
+            this.log.getListeners().forEach(l -> Message.LOG_EXPORT_SUCCESS.send(l, this.filePath.toFile().getAbsolutePath()));
+        } else {
+            ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
+            try (JsonWriter writer = newWriter(bytesOut)) {
+                write(writer);
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+                this.log.logError("Unable to export data, see the console for details.");
+                return;
+            }
+
+            post(bytesOut.toByteArray(), this.executor, this.plugin, this.label);
+        }
+    }
+
+    private static JsonWriter newWriter(OutputStream out) throws IOException {
+        return GsonProvider.prettyPrinting().newJsonWriter(new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(out), StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Writes the export to the given writer.
+     *
+     * <p>Data is written as it is gathered, holder by holder, so the whole export
+     * never has to be held in memory at once.</p>
+     *
+     * @param writer the writer
+     * @throws IOException if an error occurs whilst writing
+     */
+    private void write(JsonWriter writer) throws IOException {
+        writer.beginObject();
+
+        writer.name("metadata");
+        GsonProvider.prettyPrinting().toJson(new JObject()
                 .add("generatedBy", this.executor.getNameWithLocation())
                 .add("generatedAt", DATE_FORMAT.format(new Date(System.currentTimeMillis())))
-                .toJson());
+                .toJson(), writer);
 
         this.log.log("Gathering group data...");
-        json.add("groups", exportGroups());
+        writer.name("groups");
+        exportGroups(writer);
 
         this.log.log("Gathering track data...");
-        json.add("tracks", exportTracks());
+        writer.name("tracks");
+        exportTracks(writer);
 
         if (this.includeUsers) {
             this.log.log("Gathering user data...");
-            json.add("users", exportUsers());
+            writer.name("users");
+            exportUsers(writer);
         }
 
-        if (this.saveFile) {
-            this.log.log("Finished gathering data, writing file...");
-
-            try (BufferedWriter out = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(this.filePath)), StandardCharsets.UTF_8))) {
-                GsonProvider.prettyPrinting().toJson(json, out);
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-
-            this.log.getListeners().forEach(l -> Message.LOG_EXPORT_SUCCESS.send(l, this.filePath.toFile().getAbsolutePath()));
-        } else {
-            post(json, this.executor, this.plugin, label);
-        }
+        writer.endObject();
+        this.log.log("Finished gathering data.");
     }
 
-    public static CommandResult post(JsonObject payload, Sender sender, LuckPermsPlugin plugin, String label) {
-        ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
-        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(bytesOut), StandardCharsets.UTF_8)) {
-            GsonProvider.prettyPrinting().toJson(payload, writer);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-
+    public static CommandResult post(byte[] payload, Sender sender, LuckPermsPlugin plugin, String label) {
         String pasteId;
         try {
-            pasteId = plugin.getBytebin().postContent(bytesOut.toByteArray(), AbstractHttpClient.JSON_TYPE, false).key();
+            pasteId = plugin.getBytebin().postContent(payload, AbstractHttpClient.JSON_TYPE, false).key();
         } catch (UnsuccessfulRequestException e) {
             Message.EXPORT_HTTP_REQUEST_FAILURE.send(sender, e.getResponse().code(), e.getResponse().message());
             return CommandResult.STATE_ERROR;
@@ -172,40 +200,44 @@ public class Exporter implements Runnable {
         return CommandResult.SUCCESS;
     }
 
-    private JsonObject exportGroups() {
-        JsonObject out = new JsonObject();
+    private void exportGroups(JsonWriter writer) throws IOException {
         List<Group> groups = this.plugin.getGroupManager().getAll().values().stream()
                 .sorted(Comparator.<Group>comparingInt(o -> o.getWeight().orElse(0)).reversed()
                         .thenComparing(Group::getName)
                 )
                 .collect(Collectors.toList());
 
+        writer.beginObject();
         for (Group group : groups) {
-            out.add(group.getName(), new JObject()
+            writer.name(group.getName());
+            GsonProvider.prettyPrinting().toJson(new JObject()
                     .add("nodes", NodeJsonSerializer.serializeNodes(group.normalData().asSet()))
-                    .toJson());
+                    .toJson(), writer);
         }
-        return out;
+        writer.endObject();
     }
 
-    private JsonObject exportTracks() {
-        JsonObject out = new JsonObject();
+    private void exportTracks(JsonWriter writer) throws IOException {
         Collection<Track> tracks = this.plugin.getTrackManager().getAll().values().stream()
                 .sorted(Comparator.comparing(Track::getName))
                 .collect(Collectors.toList());
 
+        writer.beginObject();
         for (Track track : tracks) {
-            out.add(track.getName(), new JObject()
+            writer.name(track.getName());
+            GsonProvider.prettyPrinting().toJson(new JObject()
                     .add("groups", new JArray().consume(arr -> track.getGroups().forEach(arr::add)))
-                    .toJson());
+                    .toJson(), writer);
         }
-        return out;
+        writer.endObject();
     }
 
-    private JsonObject exportUsers() {
-        // Users are migrated in separate threads.
+    private void exportUsers(JsonWriter writer) throws IOException {
+        // Users are loaded in separate threads.
         // This is because there are likely to be a lot of them, and because we can.
         // It's a big speed improvement, since the database/files are split up and can handle concurrent reads.
+        // The loaded users are passed back to this thread through a bounded queue, and are written out
+        // one at a time, so only a limited number of them are ever held in memory.
 
         this.log.log("Finding a list of unique users to export.");
 
@@ -214,60 +246,97 @@ public class Exporter implements Runnable {
         Set<UUID> users = ds.getUniqueUsers().join();
         this.log.log("Found " + users.size() + " unique users to export.");
 
-        // create a threadpool to process the users concurrently
-        ExecutorService executor = Executors.newFixedThreadPool(32);
-
-        // A set of futures, which are really just the processes we need to wait for.
-        Set<CompletableFuture<Void>> futures = new HashSet<>();
-
-        AtomicInteger userCount = new AtomicInteger(0);
-        Map<UUID, JsonObject> out = Collections.synchronizedMap(new TreeMap<>());
-
-        // iterate through each user.
-        for (UUID uuid : users) {
-            // register a task for the user, and schedule it's execution with the pool
-            futures.add(CompletableFuture.runAsync(() -> {
-                User user = this.plugin.getStorage().loadUser(uuid, null).join();
-                out.put(user.getUniqueId(), new JObject()
-                        .consume(obj -> {
-                            user.getUsername().ifPresent(username -> obj.add("username", username));
-                            if (!user.getPrimaryGroup().getStoredValue().orElse(GroupManager.DEFAULT_GROUP_NAME).equalsIgnoreCase(GroupManager.DEFAULT_GROUP_NAME)) {
-                                obj.add("primaryGroup", user.getPrimaryGroup().getStoredValue().get());
-                            }
-                        })
-                        .add("nodes", NodeJsonSerializer.serializeNodes(user.normalData().asSet()))
-                        .toJson());
-                this.plugin.getUserManager().getHouseKeeper().cleanup(user.getUniqueId());
-                userCount.incrementAndGet();
-            }, executor));
+        Iterator<UUID> remaining = users.iterator();
+        BlockingQueue<ExportedUser> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+        // create a threadpool to load the users concurrently
+        ExecutorService executor = Executors.newFixedThreadPool(LOADER_THREADS);
+        for (int i = 0; i < LOADER_THREADS; i++) {
+            executor.execute(() -> {
+                UUID uuid;
+                while ((uuid = next(remaining)) != null) {
+                    JsonObject data = null;
+                    try {
+                        data = exportUser(uuid);
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+
+                    try {
+                        queue.put(new ExportedUser(uuid, data));
+                    } catch (InterruptedException e) {
+                        // the export has been aborted
+                        return;
+                    }
+                }
+            });
         }
 
-        // all of the threads have been scheduled now and are running. we just need to wait for them all to complete
-        CompletableFuture<Void> overallFuture = CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+        this.log.resetRate();
+        long lastReport = System.nanoTime();
 
-        while (true) {
-            try {
-                overallFuture.get(5, TimeUnit.SECONDS);
-            } catch (InterruptedException | ExecutionException e) {
-                // abnormal error - just break
-                e.printStackTrace();
-                break;
-            } catch (TimeoutException e) {
-                // still executing - send a progress report and continue waiting
-                this.log.logAllProgress("Exported {} users so far.", userCount.get());
-                continue;
+        writer.beginObject();
+        try {
+            int processed = 0;
+            while (processed < users.size()) {
+                ExportedUser user;
+                try {
+                    user = queue.poll(PROGRESS_INTERVAL_SECONDS, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted whilst exporting users", e);
+                }
+
+                if (user != null) {
+                    if (user.data != null) {
+                        writer.name(user.uuid.toString());
+                        GsonProvider.prettyPrinting().toJson(user.data, writer);
+                    }
+                    processed++;
+                }
+
+                // send a progress report every so often
+                long now = System.nanoTime();
+                if (now - lastReport >= TimeUnit.SECONDS.toNanos(PROGRESS_INTERVAL_SECONDS)) {
+                    this.log.logAllProgressWithRate("Exported {} users so far.", processed);
+                    lastReport = now;
+                }
             }
+        } finally {
+            // stops the loaders if we failed part way through
+            executor.shutdownNow();
+        }
+        writer.endObject();
+    }
+
+    private JsonObject exportUser(UUID uuid) {
+        User user = this.plugin.getStorage().loadUser(uuid, null).join();
+        JsonObject data = new JObject()
+                .consume(obj -> {
+                    user.getUsername().ifPresent(username -> obj.add("username", username));
+                    if (!user.getPrimaryGroup().getStoredValue().orElse(GroupManager.DEFAULT_GROUP_NAME).equalsIgnoreCase(GroupManager.DEFAULT_GROUP_NAME)) {
+                        obj.add("primaryGroup", user.getPrimaryGroup().getStoredValue().get());
+                    }
+                })
+                .add("nodes", NodeJsonSerializer.serializeNodes(user.normalData().asSet()))
+                .toJson();
+        this.plugin.getUserManager().getHouseKeeper().cleanup(user.getUniqueId());
+        return data;
+    }
 
-            // process is complete
-            break;
+    private static UUID next(Iterator<UUID> iterator) {
+        synchronized (iterator) {
+            return iterator.hasNext() ? iterator.next() : null;
         }
+    }
 
-        executor.shutdown();
+    private static final class ExportedUser {
+        private final UUID uuid;
+        private final JsonObject data; // null if the user couldn't be loaded
 
-        JsonObject outJson = new JsonObject();
-        for (Map.Entry<UUID, JsonObject> entry : out.entrySet()) {
-            outJson.add(entry.getKey().toString(), entry.getValue());
+        ExportedUser(UUID uuid, JsonObject data) {
+            this.uuid = uuid;
+            this.data = data;
         }
-        return outJson;
     }
 }
@@ -30,7 +30,10 @@ import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
 
+import me.lucko.luckperms.common.event.EventDispatcher;
 import me.lucko.luckperms.common.locale.message.Message;
 import me.lucko.luckperms.common.model.Group;
 import me.lucko.luckperms.common.model.Track;
@@ -38,37 +41,86 @@ import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.node.utils.NodeJsonSerializer;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.sender.Sender;
+import me.lucko.luckperms.common.util.ProgressLogger;
+import me.lucko.luckperms.common.util.gson.GsonProvider;
 
 import net.luckperms.api.event.cause.CreationCause;
 import net.luckperms.api.model.data.DataType;
 import net.luckperms.api.node.Node;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Handles import operations
  */
 public class Importer implements Runnable {
 
+    // the maximum number of entries which can be read ahead of those being imported
+    private static final int MAX_PENDING_ENTRIES = 1024;
+    // how often to report progress
+    private static final int PROGRESS_INTERVAL_SECONDS = 2;
+    // the sections of data which are imported, in order
+    private static final Set<String> SECTIONS = ImmutableSet.of("groups", "tracks", "users");
+
     private final LuckPermsPlugin plugin;
     private final Set<Sender> notify;
     private final JsonObject data;
+    private final Path file;
     private final boolean merge;
-
+    private final ProgressLogger log;
+
+    // state used whilst importing
+    private final Semaphore pendingEntries = new Semaphore(MAX_PENDING_ENTRIES);
+    private final AtomicInteger processedCount = new AtomicInteger(0);
+    private final AtomicInteger errorCount = new AtomicInteger(0);
+    private ExecutorService executor;
+    private EventDispatcher.Batch eventBatch;
+    private long lastProgressReport;
+    // the total number of entries to import, or -1 if unknown (when streaming from a file)
+    private int totalEntries = -1;
+
+    /**
+     * Creates an importer which reads from an already parsed data object.
+     *
+     * @param plugin the plugin
+     * @param executor the sender who started the import
+     * @param data the data to import
+     * @param merge if the data should be merged with existing data
+     */
     public Importer(LuckPermsPlugin plugin, Sender executor, JsonObject data, boolean merge) {
+        this(plugin, executor, data, null, merge);
+    }
+
+    /**
+     * Creates an importer which streams data from a (gzipped) export file.
+     *
+     * @param plugin the plugin
+     * @param executor the sender who started the import
+     * @param file the file to import
+     * @param merge if the data should be merged with existing data
+     */
+    public Importer(LuckPermsPlugin plugin, Sender executor, Path file, boolean merge) {
+        this(plugin, executor, null, file, merge);
+    }
+
+    private Importer(LuckPermsPlugin plugin, Sender executor, JsonObject data, Path file, boolean merge) {
         this.plugin = plugin;
 
         if (executor.isConsole()) {
@@ -77,27 +129,19 @@ public class Importer implements Runnable {
             this.notify = ImmutableSet.of(executor, plugin.getConsoleSender());
         }
         this.data = data;
+        this.file = file;
         this.merge = merge;
-    }
 
-    private static final class UserData {
-        private final String username;
-        private final String primaryGroup;
-        private final Set<Node> nodes;
-
-        UserData(String username, String primaryGroup, Set<Node> nodes) {
-            this.username = username;
-            this.primaryGroup = primaryGroup;
-            this.nodes = nodes;
-        }
+        this.log = new ProgressLogger(Message.IMPORT_INFO, Message.IMPORT_INFO, null);
+        this.notify.forEach(this.log::addListener);
     }
 
     private void processGroup(String groupName, Set<Node> nodes) {
         Group group = this.plugin.getStorage().createAndLoadGroup(groupName, CreationCause.INTERNAL).join();
         if (this.merge) {
-            group.mergeNodes(DataType.NORMAL, nodes);
+            group.mergeNodes(DataType.NORMAL, nodes, true);
         } else {
-            group.setNodes(DataType.NORMAL, nodes);
+            group.setNodes(DataType.NORMAL, nodes, true);
         }
         this.plugin.getStorage().saveGroup(group);
     }
@@ -108,60 +152,142 @@ public class Importer implements Runnable {
         this.plugin.getStorage().saveTrack(track).join();
     }
 
-    private void processUser(UUID uuid, UserData userData) {
-        User user = this.plugin.getStorage().loadUser(uuid, userData.username).join();
-        if (userData.primaryGroup != null) {
-            user.getPrimaryGroup().setStoredValue(userData.primaryGroup);
+    private void processUser(UUID uuid, String username, String primaryGroup, Set<Node> nodes) {
+        User user = this.plugin.getStorage().loadUser(uuid, username).join();
+        if (primaryGroup != null) {
+            user.getPrimaryGroup().setStoredValue(primaryGroup);
         }
         if (this.merge) {
-            user.mergeNodes(DataType.NORMAL, userData.nodes);
+            user.mergeNodes(DataType.NORMAL, nodes, true);
         } else {
-            user.setNodes(DataType.NORMAL, userData.nodes);
+            user.setNodes(DataType.NORMAL, nodes, true);
         }
-        this.plugin.getStorage().saveUser(user).join();
+        // each user is only saved once, so don't wait in the save queue
+        this.plugin.getStorage().saveUserImmediately(user).join();
         this.plugin.getUserManager().getHouseKeeper().cleanup(user.getUniqueId());
     }
 
-    @Override
-    public void run() {
-        long startTime = System.currentTimeMillis();
-        this.notify.forEach(s -> Message.IMPORT_START.send(s));
-
-        // start an update task in the background - we'll #join this later
-        CompletableFuture<Void> updateTask = CompletableFuture.runAsync(() -> this.plugin.getSyncTaskBuffer().requestDirectly());
+    private void processEntry(String section, String name, JsonObject data) {
+        switch (section) {
+            case "groups":
+                processGroup(name, NodeJsonSerializer.deserializeNodes(data.get("nodes").getAsJsonArray()));
+                break;
+            case "tracks": {
+                JsonArray trackGroups = data.get("groups").getAsJsonArray();
+                List<String> trackGroupsList = new ArrayList<>();
+                trackGroups.forEach(g -> trackGroupsList.add(g.getAsString()));
+                processTrack(name, trackGroupsList);
+                break;
+            }
+            case "users": {
+                UUID uuid = UUID.fromString(name);
+                String username = null;
+                String primaryGroup = null;
+                Set<Node> nodes = NodeJsonSerializer.deserializeNodes(data.get("nodes").getAsJsonArray());
+
+                if (data.has("username")) {
+                    username = data.get("username").getAsString();
+                }
+                if (data.has("primaryGroup")) {
+                    primaryGroup = data.get("primaryGroup").getAsString();
+                }
+
+                processUser(uuid, username, primaryGroup, nodes);
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown section: " + section);
+        }
+    }
 
-        this.notify.forEach(s -> Message.IMPORT_INFO.send(s, "Reading data..."));
+    /**
+     * Schedules an entry to be imported.
+     *
+     * <p>Blocks if too many entries are already waiting to be imported, so that the
+     * reader can never get too far ahead of the storage writes.</p>
+     */
+    private void submit(String section, String name, JsonObject data) {
+        while (true) {
+            try {
+                if (this.pendingEntries.tryAcquire(PROGRESS_INTERVAL_SECONDS, TimeUnit.SECONDS)) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+            sendProgress();
+        }
 
-        Map<String, Set<Node>> groups = new HashMap<>();
-        Map<String, List<String>> tracks = new HashMap<>();
-        Map<UUID, UserData> users = new HashMap<>();
+        this.executor.execute(this.eventBatch.wrap(() -> {
+            try {
+                processEntry(section, name, data);
+            } catch (Exception e) {
+                new RuntimeException("Exception whilst importing " + section + " entry '" + name + "'", e).printStackTrace();
+                this.errorCount.incrementAndGet();
+            } finally {
+                this.processedCount.incrementAndGet();
+                this.pendingEntries.release();
+            }
+        }));
 
-        for (Map.Entry<String, JsonElement> group : this.data.get("groups").getAsJsonObject().entrySet()) {
-            groups.put(group.getKey(), NodeJsonSerializer.deserializeNodes(group.getValue().getAsJsonObject().get("nodes").getAsJsonArray()));
-        }
-        for (Map.Entry<String, JsonElement> track : this.data.get("tracks").getAsJsonObject().entrySet()) {
-            JsonArray trackGroups = track.getValue().getAsJsonObject().get("groups").getAsJsonArray();
-            List<String> trackGroupsList = new ArrayList<>();
-            trackGroups.forEach(g -> trackGroupsList.add(g.getAsString()));
-            tracks.put(track.getKey(), trackGroupsList);
+        long now = System.nanoTime();
+        if (now - this.lastProgressReport >= TimeUnit.SECONDS.toNanos(PROGRESS_INTERVAL_SECONDS)) {
+            sendProgress();
         }
-        for (Map.Entry<String, JsonElement> user : this.data.get("users").getAsJsonObject().entrySet()) {
-            JsonObject jsonData = user.getValue().getAsJsonObject();
+    }
 
-            UUID uuid = UUID.fromString(user.getKey());
-            String username = null;
-            String primaryGroup = null;
-            Set<Node> nodes = NodeJsonSerializer.deserializeNodes(jsonData.get("nodes").getAsJsonArray());
+    private void readData(JsonObject data) {
+        int total = 0;
+        for (String section : SECTIONS) {
+            JsonElement sectionData = data.get(section);
+            if (sectionData != null) {
+                total += sectionData.getAsJsonObject().size();
+            }
+        }
+        this.totalEntries = total;
 
-            if (jsonData.has("username")) {
-                username = jsonData.get("username").getAsString();
+        for (String section : SECTIONS) {
+            JsonElement sectionData = data.get(section);
+            if (sectionData == null) {
+                continue;
             }
-            if (jsonData.has("primaryGroup")) {
-                primaryGroup = jsonData.get("primaryGroup").getAsString();
+            for (Map.Entry<String, JsonElement> entry : sectionData.getAsJsonObject().entrySet()) {
+                submit(section, entry.getKey(), entry.getValue().getAsJsonObject());
             }
+        }
+    }
 
-            users.put(uuid, new UserData(username, primaryGroup, nodes));
+    private void readFile(Path file) throws IOException {
+        try (JsonReader reader = new JsonReader(new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8)))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String section = reader.nextName();
+                if (!SECTIONS.contains(section)) {
+                    reader.skipValue();
+                    continue;
+                }
+
+                // read the entries in the section one at a time
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String name = reader.nextName();
+                    JsonObject data = GsonProvider.normal().fromJson(reader, JsonObject.class);
+                    submit(section, name, data);
+                }
+                reader.endObject();
+            }
+            reader.endObject();
         }
+    }
+
+    @Override
+    public void run() {
+        long startTime = System.currentTimeMillis();
+        this.notify.forEach(s -> Message.IMPORT_START.send(s));
+
+        // start an update task in the background - we'll #join this later
+        CompletableFuture<Void> updateTask = CompletableFuture.runAsync(() -> this.plugin.getSyncTaskBuffer().requestDirectly());
 
         this.notify.forEach(s -> Message.IMPORT_INFO.send(s, "Waiting for initial update task to complete..."));
 
@@ -171,69 +297,82 @@ public class Importer implements Runnable {
         this.notify.forEach(s -> Message.IMPORT_INFO.send(s, "Setting up data processor..."));
 
         // create a threadpool for the processing
-        ExecutorService executor = Executors.newFixedThreadPool(16, new ThreadFactoryBuilder().setNameFormat("luckperms-importer-%d").build());
+        this.executor = Executors.newFixedThreadPool(16, new ThreadFactoryBuilder().setNameFormat("luckperms-importer-%d").build());
 
-        // A set of futures, which are really just the processes we need to wait for.
-        Set<CompletableFuture<Void>> futures = new HashSet<>();
-
-        int total = 0;
-        AtomicInteger processedCount = new AtomicInteger(0);
-
-        for (Map.Entry<String, Set<Node>> group : groups.entrySet()) {
-            futures.add(CompletableFuture.completedFuture(group).thenAcceptAsync(ent -> {
-                processGroup(ent.getKey(), ent.getValue());
-                processedCount.incrementAndGet();
-            }, executor));
-            total++;
-        }
-        for (Map.Entry<String, List<String>> track : tracks.entrySet()) {
-            futures.add(CompletableFuture.completedFuture(track).thenAcceptAsync(ent -> {
-                processTrack(ent.getKey(), ent.getValue());
-                processedCount.incrementAndGet();
-            }, executor));
-            total++;
-        }
-        for (Map.Entry<UUID, UserData> user : users.entrySet()) {
-            futures.add(CompletableFuture.completedFuture(user).thenAcceptAsync(ent -> {
-                processUser(ent.getKey(), ent.getValue());
-                processedCount.incrementAndGet();
-            }, executor));
-            total++;
-        }
+        this.notify.forEach(s -> Message.IMPORT_INFO.send(s, "Reading and importing data..."));
 
-        // all of the threads have been scheduled now and are running. we just need to wait for them all to complete
-        CompletableFuture<Void> overallFuture = CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+        // post the events triggered by the import in batches, rather than as a task each
+        try (EventDispatcher.Batch eventBatch = this.plugin.getEventDispatcher().openBatch()) {
+            this.eventBatch = eventBatch;
 
-        this.notify.forEach(s -> Message.IMPORT_INFO.send(s, "All data entries have been processed and scheduled for import - now waiting for the execution to complete."));
+            this.log.resetRate();
+            this.lastProgressReport = System.nanoTime();
 
-        while (true) {
             try {
-                overallFuture.get(2, TimeUnit.SECONDS);
-            } catch (InterruptedException | ExecutionException e) {
-                // abnormal error - just break
+                if (this.file != null) {
+                    readFile(this.file);
+                } else {
+                    readData(this.data);
+                }
+            } catch (IOException | JsonParseException | IllegalStateException e) {
                 e.printStackTrace();
-                break;
-            } catch (TimeoutException e) {
-                // still executing - send a progress report and continue waiting
-                sendProgress(processedCount.get(), total);
-                continue;
+                this.notify.forEach(s -> Message.IMPORT_FILE_READ_FAILURE.send(s));
             }
 
-            // process is complete
-            break;
+            this.notify.forEach(s -> Message.IMPORT_INFO.send(s, "All data entries have been read and scheduled for import - now waiting for the execution to complete."));
+
+            // wait for the remaining entries to be imported
+            while (true) {
+                try {
+                    if (this.pendingEntries.tryAcquire(MAX_PENDING_ENTRIES, PROGRESS_INTERVAL_SECONDS, TimeUnit.SECONDS)) {
+                        break;
+                    }
+                } catch (InterruptedException e) {
+                    // abnormal error - just break
+                    e.printStackTrace();
+                    break;
+                }
+
+                // still executing - send a progress report and continue waiting
+                sendProgress();
+            }
         }
 
-        executor.shutdown();
+        this.executor.shutdown();
+
+        // write the group saves which are still waiting in the save queue
+        this.plugin.getStorage().flushSaves().join();
 
         long endTime = System.currentTimeMillis();
         double seconds = (endTime - startTime) / 1000.0;
 
-        this.notify.forEach(s -> Message.IMPORT_END_COMPLETE.send(s, seconds));
+        int errors = this.errorCount.get();
+        if (errors == 0) {
+            this.notify.forEach(s -> Message.IMPORT_END_COMPLETE.send(s, seconds));
+        } else if (errors == 1) {
+            this.notify.forEach(s -> Message.IMPORT_END_COMPLETE_ERR_SIN.send(s, seconds, errors));
+        } else {
+            this.notify.forEach(s -> Message.IMPORT_END_COMPLETE_ERR.send(s, seconds, errors));
+        }
     }
 
-    private void sendProgress(int processedCount, int total) {
-        int percent = (processedCount * 100) / total;
-        this.notify.forEach(s -> Message.IMPORT_PROGRESS.send(s, percent, processedCount, total, 0));
+    private void sendProgress() {
+        this.lastProgressReport = System.nanoTime();
+
+        int processed = this.processedCount.get();
+        int total = this.totalEntries;
+        if (total <= 0) {
+            this.log.logAllProgressWithRate("Imported {} entries so far", processed);
+            return;
+        }
+
+        int percent = (processed * 100) / total;
+        int errors = this.errorCount.get();
+        if (errors == 1) {
+            this.notify.forEach(s -> Message.IMPORT_PROGRESS_SIN.send(s, percent, processed, total, errors));
+        } else {
+            this.notify.forEach(s -> Message.IMPORT_PROGRESS.send(s, percent, processed, total, errors));
+        }
     }
 
 }
@@ -53,6 +53,14 @@ public class Constraint {
         return this.compiledExpression.test(value);
     }
 
+    public Comparison getComparison() {
+        return this.comparison;
+    }
+
+    public String getExpressionValue() {
+        return this.expressionValue;
+    }
+
     public void appendSql(PreparedStatementBuilder builder, String field) {
         // e.g. field LIKE ?
         builder.append(field + " ");
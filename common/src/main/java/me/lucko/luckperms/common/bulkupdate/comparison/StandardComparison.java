@@ -100,6 +100,17 @@ public enum StandardComparison implements Comparison {
     }
 
     static Pattern compilePatternForLikeSyntax(String expression) {
+        return Pattern.compile(convertLikeSyntaxToRegex(expression));
+    }
+
+    /**
+     * Converts an expression in SQL LIKE syntax to the equivalent regex, as
+     * used by {@link #SIMILAR} and {@link #NOT_SIMILAR}.
+     *
+     * @param expression the expression
+     * @return the regex
+     */
+    public static String convertLikeSyntaxToRegex(String expression) {
         expression = expression.toLowerCase();
         expression = expression.replace(".", "\\.");
 
@@ -107,7 +118,7 @@ public enum StandardComparison implements Comparison {
         expression = expression.replace(WILDCARD_ONE, ".");
         expression = expression.replace(WILDCARD, ".*");
 
-        return Pattern.compile(expression);
+        return expression;
     }
 
 }
@@ -50,6 +50,7 @@ import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 
 /**
@@ -186,21 +187,40 @@ public abstract class AbstractCachedDataManager implements CachedDataManager {
         private final Function<QueryOptions, C> cacheLoader;
         private final LoadingMap<QueryOptions, C> cache;
 
+        // incremented after every change to the cache map
+        private final AtomicInteger modCount = new AtomicInteger();
+        // the most recent lookup - query options are interned, so repeated
+        // lookups for the same subject can usually be served by an identity check
+        private volatile LastLookup<C> lastLookup = null;
+
         public AbstractContainer(Function<QueryOptions, C> cacheLoader) {
             this.cacheLoader = cacheLoader;
             this.cache = LoadingMap.of(this.cacheLoader);
         }
 
+        private void modified() {
+            this.modCount.incrementAndGet();
+        }
+
         public void cleanup() {
             this.cache.values().removeIf(value -> ((UsageTracked) value).usedSince(TimeUnit.MINUTES.toMillis(2)));
+            modified();
         }
 
         @Override
         public @NonNull C get(@NonNull QueryOptions queryOptions) {
             Objects.requireNonNull(queryOptions, "queryOptions");
 
+            int modCount = this.modCount.get();
+            LastLookup<C> last = this.lastLookup;
+            if (last != null && last.queryOptions == queryOptions && last.modCount == modCount) {
+                ((UsageTracked) last.data).recordUsage();
+                return last.data;
+            }
+
             C data = this.cache.get(queryOptions);
             ((UsageTracked) data).recordUsage();
+            this.lastLookup = new LastLookup<>(queryOptions, data, modCount);
             return data;
         }
 
@@ -216,6 +236,7 @@ public abstract class AbstractCachedDataManager implements CachedDataManager {
             CompletableFuture.runAsync(() -> {
                 final C value = this.cacheLoader.apply(queryOptions);
                 this.cache.put(queryOptions, value);
+                modified();
             }, CaffeineFactory.executor());
         }
 
@@ -225,6 +246,7 @@ public abstract class AbstractCachedDataManager implements CachedDataManager {
 
             // invalidate the previous value until we're done recalculating
             this.cache.remove(queryOptions);
+            modified();
 
             // request recalculation from the cache
             return CompletableFuture.supplyAsync(() -> this.cache.get(queryOptions), CaffeineFactory.executor());
@@ -246,11 +268,25 @@ public abstract class AbstractCachedDataManager implements CachedDataManager {
         public void invalidate(@NonNull QueryOptions queryOptions) {
             Objects.requireNonNull(queryOptions, "queryOptions");
             this.cache.remove(queryOptions);
+            modified();
         }
 
         @Override
         public void invalidate() {
             this.cache.clear();
+            modified();
+        }
+    }
+
+    private static final class LastLookup<C> {
+        private final QueryOptions queryOptions;
+        private final C data;
+        private final int modCount;
+
+        LastLookup(QueryOptions queryOptions, C data, int modCount) {
+            this.queryOptions = queryOptions;
+            this.data = data;
+            this.modCount = modCount;
         }
     }
 
@@ -75,7 +75,12 @@ public abstract class HolderCachedDataManager<T extends PermissionHolder> extend
 
     @Override
     protected void resolvePermissions(Map<String, Boolean> accumulator, QueryOptions queryOptions) {
-        this.holder.exportPermissions(accumulator, queryOptions, true, getPlugin().getConfiguration().get(ConfigKeys.APPLYING_SHORTHAND));
+        boolean resolveShorthand = getPlugin().getConfiguration().get(ConfigKeys.APPLYING_SHORTHAND);
+        if (getPlugin().getConfiguration().get(ConfigKeys.SHARED_GROUP_PERMISSION_SNAPSHOTS)) {
+            this.holder.exportPermissionsFromSnapshots(accumulator, queryOptions, resolveShorthand);
+        } else {
+            this.holder.exportPermissions(accumulator, queryOptions, true, resolveShorthand);
+        }
     }
 
     @Override
@@ -0,0 +1,120 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.cacheddata;
+
+import me.lucko.luckperms.common.model.Group;
+
+import net.luckperms.api.node.Node;
+import net.luckperms.api.query.QueryOptions;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An immutable, flattened view of the permissions a {@link Group} resolves
+ * (including inherited permissions) for a given {@link QueryOptions}.
+ *
+ * <p>Snapshots are shared between all holders which inherit the group, so the
+ * inheritance graph above the group only needs to be walked once per version.</p>
+ */
+public final class PermissionSnapshot {
+
+    /**
+     * Creates a new snapshot of the given groups permissions.
+     *
+     * @param group the group
+     * @param queryOptions the query options
+     * @param version the group data version the snapshot is being created at
+     * @param resolveShorthand if shorthand permissions should be resolved
+     * @return the snapshot
+     */
+    public static PermissionSnapshot create(Group group, QueryOptions queryOptions, long version, boolean resolveShorthand) {
+        Map<String, Boolean> permissions = new HashMap<>();
+        Map<String, Boolean> shorthand = resolveShorthand ? new HashMap<>() : null;
+        for (Node node : group.resolveInheritedNodes(queryOptions)) {
+            accumulate(node, permissions, shorthand);
+        }
+        return new PermissionSnapshot(version, permissions, shorthand);
+    }
+
+    /**
+     * Adds a node to the given permission and shorthand accumulators.
+     *
+     * <p>Keys are converted to lowercase, and existing values are never replaced.</p>
+     *
+     * @param node the node
+     * @param permissions the permission accumulator
+     * @param shorthand the shorthand accumulator, or null if shorthand isn't being resolved
+     */
+    public static void accumulate(Node node, Map<String, Boolean> permissions, Map<String, Boolean> shorthand) {
+        permissions.putIfAbsent(node.getKey().toLowerCase(), node.getValue());
+        if (shorthand != null) {
+            for (String s : node.resolveShorthand()) {
+                shorthand.putIfAbsent(s.toLowerCase(), node.getValue());
+            }
+        }
+    }
+
+    /** The group data version this snapshot was created at */
+    private final long version;
+
+    /** The resolved permissions */
+    private final Map<String, Boolean> permissions;
+
+    /** The resolved shorthand permissions, or an empty map if shorthand isn't being resolved */
+    private final Map<String, Boolean> shorthand;
+
+    private PermissionSnapshot(long version, Map<String, Boolean> permissions, Map<String, Boolean> shorthand) {
+        this.version = version;
+        this.permissions = Collections.unmodifiableMap(permissions);
+        this.shorthand = shorthand == null ? Collections.emptyMap() : Collections.unmodifiableMap(shorthand);
+    }
+
+    public long getVersion() {
+        return this.version;
+    }
+
+    /**
+     * Merges this snapshot into the given accumulators. Existing values are never replaced.
+     *
+     * <p>Shorthand permissions are kept separate, as they have lower priority
+     * than all regular permissions in the inheritance tree.</p>
+     *
+     * @param permissions the permission accumulator
+     * @param shorthand the shorthand accumulator, or null if shorthand isn't being resolved
+     */
+    public void mergeInto(Map<String, Boolean> permissions, Map<String, Boolean> shorthand) {
+        for (Map.Entry<String, Boolean> e : this.permissions.entrySet()) {
+            permissions.putIfAbsent(e.getKey(), e.getValue());
+        }
+        if (shorthand != null) {
+            for (Map.Entry<String, Boolean> e : this.shorthand.entrySet()) {
+                shorthand.putIfAbsent(e.getKey(), e.getValue());
+            }
+        }
+    }
+}
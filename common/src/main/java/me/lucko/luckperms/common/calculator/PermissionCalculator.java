@@ -25,14 +25,16 @@
 
 package me.lucko.luckperms.common.calculator;
 
+import com.github.benmanes.caffeine.cache.LoadingCache;
 import com.google.common.collect.ImmutableList;
 
-import me.lucko.luckperms.common.cache.LoadingMap;
 import me.lucko.luckperms.common.cacheddata.CacheMetadata;
 import me.lucko.luckperms.common.calculator.processor.PermissionProcessor;
 import me.lucko.luckperms.common.calculator.result.TristateResult;
+import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.model.HolderType;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.util.CaffeineFactory;
 import me.lucko.luckperms.common.verbose.event.PermissionCheckEvent;
 
 import net.luckperms.api.util.Tristate;
@@ -58,7 +60,7 @@ public class PermissionCalculator implements Function<String, TristateResult> {
     private final ImmutableList<PermissionProcessor> processors;
 
     /** Loading cache for permission checks */
-    private final LoadingMap<String, TristateResult> lookupCache = LoadingMap.of(this);
+    private final LoadingCache<String, TristateResult> lookupCache;
 
     /** The object name passed to the verbose handler when checks are made */
     private final String verboseCheckTarget;
@@ -67,6 +69,7 @@ public class PermissionCalculator implements Function<String, TristateResult> {
         this.plugin = plugin;
         this.metadata = metadata;
         this.processors = processors;
+        this.lookupCache = createLookupCache(plugin, this);
 
         if (this.metadata.getHolderType() == HolderType.GROUP) {
             this.verboseCheckTarget = "group/" + this.metadata.getObjectName();
@@ -137,6 +140,19 @@ public class PermissionCalculator implements Function<String, TristateResult> {
         for (PermissionProcessor processor : this.processors) {
             processor.invalidate();
         }
-        this.lookupCache.clear();
+        this.lookupCache.invalidateAll();
+    }
+
+    private static LoadingCache<String, TristateResult> createLookupCache(LuckPermsPlugin plugin, PermissionCalculator calculator) {
+        int maximumSize = plugin.getConfiguration().get(ConfigKeys.PERMISSION_LOOKUP_CACHE_SIZE);
+        if (maximumSize <= 0) {
+            return CaffeineFactory.newBuilder().build(calculator::apply);
+        }
+
+        // all bounded calculators record to the same stats counter, so the cache can be tuned per server
+        return CaffeineFactory.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats(plugin::getPermissionLookupCacheStats)
+                .build(calculator::apply);
     }
 }
@@ -0,0 +1,264 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.calculator.processor;
+
+import me.lucko.luckperms.common.calculator.result.TristateResult;
+import me.lucko.luckperms.common.node.AbstractNode;
+
+import net.luckperms.api.util.Tristate;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A {@link PermissionProcessor} which combines the behaviour of the {@link MapProcessor},
+ * {@link RegexProcessor} and {@link WildcardProcessor} into a single lookup.
+ *
+ * <p>The source map is compiled into an immutable trie (keyed by node segment) when
+ * the processor is refreshed. Exact, wildcard and root wildcard matches can then all
+ * be resolved in a single walk over the permission string, without allocating any
+ * substrings.</p>
+ *
+ * <p>Results are attributed to the processor which would have returned them in
+ * the uncompiled chain.</p>
+ */
+public class TrieProcessor extends AbstractPermissionProcessor implements PermissionProcessor {
+    private static final TristateResult.Factory MAP_RESULT_FACTORY = new TristateResult.Factory(MapProcessor.class);
+    private static final TristateResult.Factory WILDCARD_RESULT_FACTORY = new TristateResult.Factory(WildcardProcessor.class);
+
+    private static final String ROOT_WILDCARD = "*";
+    private static final String ROOT_WILDCARD_WITH_QUOTES = "'*'";
+
+    /** The regex processor to consult between exact and wildcard matches, may be null */
+    private final RegexProcessor regexProcessor;
+
+    /** If wildcard permissions should be applied */
+    private final boolean applyWildcards;
+
+    private Node root = Node.EMPTY;
+    private TristateResult rootWildcardState = TristateResult.UNDEFINED;
+
+    public TrieProcessor(boolean applyRegex, boolean applyWildcards) {
+        this.regexProcessor = applyRegex ? new RegexProcessor() : null;
+        this.applyWildcards = applyWildcards;
+    }
+
+    @Override
+    public TristateResult hasPermission(String permission) {
+        Node node = this.root;
+        TristateResult wildcardMatch = this.rootWildcardState;
+        TristateResult exactMatch = null;
+
+        int length = permission.length();
+        int start = 0;
+        while (true) {
+            int end = permission.indexOf(AbstractNode.NODE_SEPARATOR, start);
+            node = node.child(permission, start, end == -1 ? length : end);
+            if (node == null) {
+                break;
+            }
+
+            if (end == -1) {
+                exactMatch = node.exact;
+                break;
+            }
+
+            // the node represents a prefix which is followed by a separator,
+            // so any wildcard stored against it applies. deeper matches win.
+            if (node.wildcard != null) {
+                wildcardMatch = node.wildcard;
+            }
+            start = end + 1;
+        }
+
+        if (exactMatch != null) {
+            return exactMatch;
+        }
+
+        if (this.regexProcessor != null) {
+            TristateResult regexMatch = this.regexProcessor.hasPermission(permission);
+            if (regexMatch.result() != Tristate.UNDEFINED) {
+                return regexMatch;
+            }
+        }
+
+        return wildcardMatch;
+    }
+
+    @Override
+    public void setSource(Map<String, Boolean> sourceMap) {
+        super.setSource(sourceMap);
+        if (this.regexProcessor != null) {
+            this.regexProcessor.setSource(sourceMap);
+        }
+    }
+
+    @Override
+    public void refresh() {
+        if (this.regexProcessor != null) {
+            this.regexProcessor.refresh();
+        }
+
+        NodeBuilder builder = new NodeBuilder();
+        for (Map.Entry<String, Boolean> e : this.sourceMap.entrySet()) {
+            String key = e.getKey();
+            Tristate value = Tristate.of(e.getValue());
+            builder.getOrCreate(key).exact = MAP_RESULT_FACTORY.result(value);
+
+            if (this.applyWildcards && key.endsWith(WildcardProcessor.WILDCARD_SUFFIX) && key.length() > 2) {
+                key = key.substring(0, key.length() - 2);
+                builder.getOrCreate(key).wildcard = WILDCARD_RESULT_FACTORY.result(value, "match: " + key);
+            }
+        }
+        this.root = builder.build();
+
+        if (this.applyWildcards) {
+            Tristate state = Tristate.of(this.sourceMap.get(ROOT_WILDCARD));
+            if (state == Tristate.UNDEFINED) {
+                state = Tristate.of(this.sourceMap.get(ROOT_WILDCARD_WITH_QUOTES));
+            }
+            this.rootWildcardState = WILDCARD_RESULT_FACTORY.result(state, "root");
+        } else {
+            this.rootWildcardState = TristateResult.UNDEFINED;
+        }
+    }
+
+    /**
+     * Computes the hash of a region of a string, consistent with {@link String#hashCode()}.
+     *
+     * @param s the string
+     * @param from the start index (inclusive)
+     * @param to the end index (exclusive)
+     * @return the hash
+     */
+    private static int hash(String s, int from, int to) {
+        int h = 0;
+        for (int i = from; i < to; i++) {
+            h = 31 * h + s.charAt(i);
+        }
+        return h;
+    }
+
+    private static int index(int hash, int mask) {
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    /**
+     * An immutable node in the compiled trie.
+     *
+     * <p>Children are stored in an open-addressed hash table so that they can be
+     * looked up using a region of the permission string, rather than a substring.</p>
+     */
+    private static final class Node {
+        static final Node EMPTY = new Node(null, null, null, null, null);
+
+        final TristateResult exact;
+        final TristateResult wildcard;
+
+        private final String[] childKeys;
+        private final int[] childHashes;
+        private final Node[] children;
+
+        Node(TristateResult exact, TristateResult wildcard, String[] childKeys, int[] childHashes, Node[] children) {
+            this.exact = exact;
+            this.wildcard = wildcard;
+            this.childKeys = childKeys;
+            this.childHashes = childHashes;
+            this.children = children;
+        }
+
+        Node child(String permission, int from, int to) {
+            String[] keys = this.childKeys;
+            if (keys == null) {
+                return null;
+            }
+
+            int len = to - from;
+            int hash = hash(permission, from, to);
+            int mask = keys.length - 1;
+            for (int i = index(hash, mask); ; i = (i + 1) & mask) {
+                String key = keys[i];
+                if (key == null) {
+                    return null;
+                }
+                if (this.childHashes[i] == hash && key.length() == len && permission.regionMatches(from, key, 0, len)) {
+                    return this.children[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Mutable counterpart of {@link Node}, used while compiling the trie.
+     */
+    private static final class NodeBuilder {
+        private final Map<String, NodeBuilder> children = new HashMap<>();
+        TristateResult exact;
+        TristateResult wildcard;
+
+        NodeBuilder getOrCreate(String permission) {
+            NodeBuilder node = this;
+            int start = 0;
+            while (true) {
+                int end = permission.indexOf(AbstractNode.NODE_SEPARATOR, start);
+                String segment = permission.substring(start, end == -1 ? permission.length() : end);
+                node = node.children.computeIfAbsent(segment, s -> new NodeBuilder());
+                if (end == -1) {
+                    return node;
+                }
+                start = end + 1;
+            }
+        }
+
+        Node build() {
+            if (this.children.isEmpty()) {
+                return new Node(this.exact, this.wildcard, null, null, null);
+            }
+
+            // keep the table at most half full, so probing always terminates
+            int size = Integer.highestOneBit(Math.max(this.children.size() * 2 - 1, 1)) << 1;
+            int mask = size - 1;
+
+            String[] keys = new String[size];
+            int[] hashes = new int[size];
+            Node[] nodes = new Node[size];
+
+            for (Map.Entry<String, NodeBuilder> e : this.children.entrySet()) {
+                String key = e.getKey();
+                int hash = key.hashCode();
+                int i = index(hash, mask);
+                while (keys[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = key;
+                hashes[i] = hash;
+                nodes[i] = e.getValue().build();
+            }
+
+            return new Node(this.exact, this.wildcard, keys, hashes, nodes);
+        }
+    }
+}
@@ -45,6 +45,7 @@ import me.lucko.luckperms.common.commands.misc.BulkUpdateCommand;
 import me.lucko.luckperms.common.commands.misc.CheckCommand;
 import me.lucko.luckperms.common.commands.misc.EditorCommand;
 import me.lucko.luckperms.common.commands.misc.ExportCommand;
+import me.lucko.luckperms.common.commands.misc.HeapCommand;
 import me.lucko.luckperms.common.commands.misc.ImportCommand;
 import me.lucko.luckperms.common.commands.misc.InfoCommand;
 import me.lucko.luckperms.common.commands.misc.NetworkSyncCommand;
@@ -108,6 +109,7 @@ public class CommandManager {
                 .add(new LogParentCommand(locale))
                 .add(new SyncCommand(locale))
                 .add(new InfoCommand(locale))
+                .add(new HeapCommand(locale))
                 .add(new EditorCommand(locale))
                 .add(new VerboseCommand(locale))
                 .add(new TreeCommand(locale))
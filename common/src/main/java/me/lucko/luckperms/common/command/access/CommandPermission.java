@@ -34,6 +34,7 @@ public enum CommandPermission {
 
     SYNC("sync", Type.NONE),
     INFO("info", Type.NONE),
+    HEAP("heap", Type.NONE),
     EDITOR("editor", Type.NONE),
     DEBUG("debug", Type.NONE),
     VERBOSE("verbose", Type.NONE),
@@ -97,12 +97,11 @@ public final class StorageAssistant {
             return;
         }
 
-        plugin.getGroupManager().invalidateAllGroupCaches();
-        plugin.getUserManager().invalidateAllUserCaches();
+        plugin.getInheritanceIndex().invalidateInheritors(group);
 
         Optional<InternalMessagingService> messagingService = plugin.getMessagingService();
         if (messagingService.isPresent() && plugin.getConfiguration().get(ConfigKeys.AUTO_PUSH_UPDATES)) {
-            messagingService.get().getUpdateBuffer().request();
+            messagingService.get().pushGroupUpdate(group);
         }
     }
 
@@ -120,7 +119,7 @@ public final class StorageAssistant {
 
         Optional<InternalMessagingService> messagingService = plugin.getMessagingService();
         if (messagingService.isPresent() && plugin.getConfiguration().get(ConfigKeys.AUTO_PUSH_UPDATES)) {
-            messagingService.get().getUpdateBuffer().request();
+            messagingService.get().pushTrackUpdate(track);
         }
     }
 
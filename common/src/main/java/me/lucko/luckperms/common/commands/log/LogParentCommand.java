@@ -27,7 +27,8 @@ package me.lucko.luckperms.common.commands.log;
 
 import com.google.common.collect.ImmutableList;
 
-import me.lucko.luckperms.common.actionlog.Log;
+import me.lucko.luckperms.common.actionlog.ActionFilter;
+import me.lucko.luckperms.common.actionlog.LogPage;
 import me.lucko.luckperms.common.command.abstraction.Command;
 import me.lucko.luckperms.common.command.abstraction.ParentCommand;
 import me.lucko.luckperms.common.locale.LocaleManager;
@@ -35,15 +36,17 @@ import me.lucko.luckperms.common.locale.command.CommandSpec;
 import me.lucko.luckperms.common.locale.message.Message;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.sender.Sender;
+import me.lucko.luckperms.common.storage.Storage;
+import me.lucko.luckperms.common.util.PageParameters;
 
 import java.util.List;
 import java.util.concurrent.locks.ReentrantLock;
 
-public class LogParentCommand extends ParentCommand<Log, Void> {
+public class LogParentCommand extends ParentCommand<Storage, Void> {
     private final ReentrantLock lock = new ReentrantLock();
 
     public LogParentCommand(LocaleManager locale) {
-        super(CommandSpec.LOG.localize(locale), "Log", Type.NO_TARGET_ARGUMENT, ImmutableList.<Command<Log>>builder()
+        super(CommandSpec.LOG.localize(locale), "Log", Type.NO_TARGET_ARGUMENT, ImmutableList.<Command<Storage>>builder()
                 .add(new LogRecent(locale))
                 .add(new LogSearch(locale))
                 .add(new LogNotify(locale))
@@ -60,18 +63,13 @@ public class LogParentCommand extends ParentCommand<Log, Void> {
     }
 
     @Override
-    protected Log getTarget(Void target, LuckPermsPlugin plugin, Sender sender) {
-        Log log = plugin.getStorage().getLog().join();
-
-        if (log == null) {
-            Message.LOG_LOAD_ERROR.send(sender);
-        }
-
-        return log;
+    protected Storage getTarget(Void target, LuckPermsPlugin plugin, Sender sender) {
+        // each command queries the log for only the entries it needs
+        return plugin.getStorage();
     }
 
     @Override
-    protected void cleanup(Log log, LuckPermsPlugin plugin) {
+    protected void cleanup(Storage storage, LuckPermsPlugin plugin) {
 
     }
 
@@ -87,4 +85,23 @@ public class LogParentCommand extends ParentCommand<Log, Void> {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Queries a page of the action log, informing the sender if the query fails.
+     *
+     * @param storage the storage to query
+     * @param filter the filter to apply
+     * @param page the page to return
+     * @param sender the sender running the command
+     * @return the page, or null if the log could not be loaded
+     */
+    static LogPage getLogPage(Storage storage, ActionFilter filter, PageParameters page, Sender sender) {
+        try {
+            return storage.getLogPage(filter, page).join();
+        } catch (Exception e) {
+            e.printStackTrace();
+            Message.LOG_LOAD_ERROR.send(sender);
+            return null;
+        }
+    }
+
 }
@@ -25,7 +25,8 @@
 
 package me.lucko.luckperms.common.commands.log;
 
-import me.lucko.luckperms.common.actionlog.Log;
+import me.lucko.luckperms.common.actionlog.ActionFilter;
+import me.lucko.luckperms.common.actionlog.LogPage;
 import me.lucko.luckperms.common.actionlog.LoggedAction;
 import me.lucko.luckperms.common.command.CommandResult;
 import me.lucko.luckperms.common.command.abstraction.ChildCommand;
@@ -36,14 +37,16 @@ import me.lucko.luckperms.common.locale.command.CommandSpec;
 import me.lucko.luckperms.common.locale.message.Message;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.sender.Sender;
+import me.lucko.luckperms.common.storage.Storage;
 import me.lucko.luckperms.common.util.DurationFormatter;
+import me.lucko.luckperms.common.util.PageParameters;
 import me.lucko.luckperms.common.util.Paginated;
 import me.lucko.luckperms.common.util.Predicates;
 
 import java.util.List;
 import java.util.UUID;
 
-public class LogRecent extends ChildCommand<Log> {
+public class LogRecent extends ChildCommand<Storage> {
     private static final int ENTRIES_PER_PAGE = 10;
     
     public LogRecent(LocaleManager locale) {
@@ -51,17 +54,15 @@ public class LogRecent extends ChildCommand<Log> {
     }
 
     @Override
-    public CommandResult execute(LuckPermsPlugin plugin, Sender sender, Log log, ArgumentList args, String label) {
+    public CommandResult execute(LuckPermsPlugin plugin, Sender sender, Storage storage, ArgumentList args, String label) {
         if (args.isEmpty()) {
             // No page or user
-            Paginated<LoggedAction> content = new Paginated<>(log.getContent());
-            return showLog(content.getMaxPages(ENTRIES_PER_PAGE), false, sender, content);
+            return showLog(plugin, storage, sender, ActionFilter.any(), 1, false);
         }
 
         int page = args.getIntOrDefault(0, Integer.MIN_VALUE);
         if (page != Integer.MIN_VALUE) {
-            Paginated<LoggedAction> content = new Paginated<>(log.getContent());
-            return showLog(page, false, sender, content);
+            return showLog(plugin, storage, sender, ActionFilter.any(), page, false);
         }
 
         // User and possibly page
@@ -70,17 +71,18 @@ public class LogRecent extends ChildCommand<Log> {
             return CommandResult.INVALID_ARGS;
         }
 
-        Paginated<LoggedAction> content = new Paginated<>(log.getContent(uuid));
-        page = args.getIntOrDefault(1, Integer.MIN_VALUE);
-        if (page != Integer.MIN_VALUE) {
-            return showLog(page, true, sender, content);
-        } else {
-            return showLog(content.getMaxPages(ENTRIES_PER_PAGE), true, sender, content);
-        }
+        page = args.getIntOrDefault(1, 1);
+        return showLog(plugin, storage, sender, ActionFilter.source(uuid), page, true);
     }
 
-    private static CommandResult showLog(int page, boolean specificUser, Sender sender, Paginated<LoggedAction> log) {
-        int maxPage = log.getMaxPages(ENTRIES_PER_PAGE);
+    private static CommandResult showLog(LuckPermsPlugin plugin, Storage storage, Sender sender, ActionFilter filter, int page, boolean specificUser) {
+        PageParameters pageParameters = new PageParameters(ENTRIES_PER_PAGE, Math.max(page, 1));
+        LogPage log = LogParentCommand.getLogPage(storage, filter, pageParameters, sender);
+        if (log == null) {
+            return CommandResult.STATE_ERROR;
+        }
+
+        int maxPage = pageParameters.getMaxPages(log.getTotalEntries());
         if (maxPage == 0) {
             Message.LOG_NO_ENTRIES.send(sender);
             return CommandResult.STATE_ERROR;
@@ -91,7 +93,7 @@ public class LogRecent extends ChildCommand<Log> {
             return CommandResult.INVALID_ARGS;
         }
 
-        List<Paginated.Entry<LoggedAction>> entries = log.getPage(page, ENTRIES_PER_PAGE);
+        List<Paginated.Entry<LoggedAction>> entries = log.getNumberedContent();
         if (specificUser) {
             String name = entries.stream().findAny().get().value().getSource().getName();
             if (name.contains("@")) {
@@ -112,6 +114,7 @@ public class LogRecent extends ChildCommand<Log> {
                     e.value().getDescription()
             );
         }
+
         return CommandResult.SUCCESS;
     }
 }
@@ -189,7 +189,7 @@ public class ApplyEditsCommand extends SingleCommand {
             return false;
         }
 
-        holder.setNodes(DataType.NORMAL, after);
+        holder.setNodes(DataType.NORMAL, after, true);
 
         for (Node n : diffAdded) {
             LoggedAction.build().source(sender).target(holder)
@@ -0,0 +1,103 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.commands.misc;
+
+import me.lucko.luckperms.common.command.CommandResult;
+import me.lucko.luckperms.common.command.abstraction.SingleCommand;
+import me.lucko.luckperms.common.command.access.CommandPermission;
+import me.lucko.luckperms.common.command.utils.ArgumentList;
+import me.lucko.luckperms.common.locale.LocaleManager;
+import me.lucko.luckperms.common.locale.command.CommandSpec;
+import me.lucko.luckperms.common.locale.message.Message;
+import me.lucko.luckperms.common.model.PermissionHolder;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.sender.Sender;
+import me.lucko.luckperms.common.util.Predicates;
+
+import net.luckperms.api.node.Node;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+public class HeapCommand extends SingleCommand {
+    public HeapCommand(LocaleManager locale) {
+        super(CommandSpec.HEAP.localize(locale), "Heap", CommandPermission.HEAP, Predicates.alwaysFalse());
+    }
+
+    @Override
+    public CommandResult execute(LuckPermsPlugin plugin, Sender sender, ArgumentList args, String label) {
+        Message.HEAP_START.send(sender);
+
+        NodeCounter counter = new NodeCounter();
+        plugin.getUserManager().getAll().values().forEach(counter::count);
+        plugin.getGroupManager().getAll().values().forEach(counter::count);
+
+        Runtime runtime = Runtime.getRuntime();
+        long used = runtime.totalMemory() - runtime.freeMemory();
+
+        Message.HEAP_REPORT.send(sender,
+                plugin.getUserManager().getAll().size(),
+                plugin.getGroupManager().getAll().size(),
+                counter.nodes,
+                counter.keys.size(),
+                counter.keyInstances.size(),
+                counter.contextInstances.size(),
+                formatBytes(used),
+                formatBytes(runtime.totalMemory()),
+                formatBytes(runtime.maxMemory())
+        );
+        return CommandResult.SUCCESS;
+    }
+
+    private static String formatBytes(long bytes) {
+        return String.format("%.1fMB", bytes / (1024.0 * 1024.0));
+    }
+
+    /**
+     * Counts the nodes held by permission holders, and how many distinct
+     * objects are used to represent their components.
+     */
+    private static final class NodeCounter {
+        private long nodes = 0;
+        private final Set<String> keys = new HashSet<>();
+        private final Set<Object> keyInstances = Collections.newSetFromMap(new IdentityHashMap<>());
+        private final Set<Object> contextInstances = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        void count(PermissionHolder holder) {
+            holder.normalData().forEach(this::count);
+            holder.transientData().forEach(this::count);
+        }
+
+        void count(Node node) {
+            this.nodes++;
+            this.keys.add(node.getKey());
+            this.keyInstances.add(node.getKey());
+            this.contextInstances.add(node.getContexts());
+        }
+    }
+}
@@ -38,18 +38,13 @@ import me.lucko.luckperms.common.locale.message.Message;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.sender.Sender;
 import me.lucko.luckperms.common.util.Predicates;
-import me.lucko.luckperms.common.util.gson.GsonProvider;
 import me.lucko.luckperms.common.web.UnsuccessfulRequestException;
 import me.lucko.luckperms.common.web.WebEditor;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.zip.GZIPInputStream;
 
 public class ImportCommand extends SingleCommand {
     private final AtomicBoolean running = new AtomicBoolean(false);
@@ -67,7 +62,7 @@ public class ImportCommand extends SingleCommand {
 
         boolean fromFile = !args.remove("--upload");
 
-        JsonObject data;
+        Importer importer;
         if (fromFile) {
             String fileName = args.get(0);
             Path dataDirectory = plugin.getBootstrap().getDataDirectory();
@@ -101,16 +96,11 @@ public class ImportCommand extends SingleCommand {
                 return CommandResult.STATE_ERROR;
             }
 
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(path)), StandardCharsets.UTF_8))) {
-                data = GsonProvider.normal().fromJson(reader, JsonObject.class);
-            } catch (IOException e) {
-                e.printStackTrace();
-                Message.IMPORT_FILE_READ_FAILURE.send(sender);
-                this.running.set(false);
-                return CommandResult.FAILURE;
-            }
+            // the file is streamed by the importer, rather than read into memory here
+            importer = new Importer(plugin, sender, path, args.contains("--merge"));
         } else {
             String code = args.get(0);
+            JsonObject data;
 
             if (code.isEmpty()) {
                 Message.IMPORT_INVALID_CODE.send(sender, code);
@@ -132,9 +122,9 @@ public class ImportCommand extends SingleCommand {
                 Message.IMPORT_UNABLE_TO_READ.send(sender, code);
                 return CommandResult.FAILURE;
             }
-        }
 
-        Importer importer = new Importer(plugin, sender, data, args.contains("--merge"));
+            importer = new Importer(plugin, sender, data, args.contains("--merge"));
+        }
 
         // Run the importer in its own thread.
         plugin.getBootstrap().getScheduler().executeAsync(() -> {
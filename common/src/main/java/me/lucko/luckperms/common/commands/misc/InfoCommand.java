@@ -25,11 +25,14 @@
 
 package me.lucko.luckperms.common.commands.misc;
 
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
 import me.lucko.luckperms.common.command.CommandResult;
 import me.lucko.luckperms.common.command.abstraction.SingleCommand;
 import me.lucko.luckperms.common.command.access.CommandPermission;
 import me.lucko.luckperms.common.command.utils.ArgumentList;
 import me.lucko.luckperms.common.command.utils.MessageUtils;
+import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.locale.LocaleManager;
 import me.lucko.luckperms.common.locale.command.CommandSpec;
 import me.lucko.luckperms.common.locale.message.Message;
@@ -78,6 +81,14 @@ public class InfoCommand extends SingleCommand {
             }
         }
 
+        Map<String, String> syncMeta = plugin.getBootstrap().getScheduler().getSyncMeta();
+        if (!syncMeta.isEmpty()) {
+            Message.INFO_SYNC_TASKS.send(sender);
+            for (Map.Entry<String, String> e : syncMeta.entrySet()) {
+                Message.INFO_SYNC_TASKS_META.send(sender, e.getKey(), e.getValue());
+            }
+        }
+
         ImmutableContextSet staticContext = plugin.getContextManager().getStaticContext();
         Message.INFO_MIDDLE.send(sender,
                 plugin.getMessagingService().map(InternalMessagingService::getName).orElse("None"),
@@ -90,6 +101,18 @@ public class InfoCommand extends SingleCommand {
                 plugin.getTrackManager().getAll().size()
         );
 
+        int lookupCacheSize = plugin.getConfiguration().get(ConfigKeys.PERMISSION_LOOKUP_CACHE_SIZE);
+        if (lookupCacheSize > 0) {
+            CacheStats stats = plugin.getPermissionLookupCacheStats().snapshot();
+            Message.INFO_PERMISSION_LOOKUP_CACHE.send(sender,
+                    lookupCacheSize,
+                    stats.hitCount(),
+                    stats.missCount(),
+                    String.format("%.1f", stats.hitRate() * 100),
+                    stats.evictionCount()
+            );
+        }
+
         return CommandResult.SUCCESS;
     }
 
@@ -97,6 +97,29 @@ public final class ConfigKeys {
         return val;
     }));
 
+    /**
+     * How many milliseconds to hold user and group saves for, so repeated saves for the same
+     * holder can be coalesced. A value <= 0 will write saves immediately.
+     */
+    public static final ConfigKey<Integer> SAVE_COALESCING_WINDOW = notReloadable(key(c -> c.getInteger("save-coalescing-window", 0)));
+
+    /**
+     * If calculated contexts should be cached until a context update is signalled, instead of
+     * being recalculated roughly every tick.
+     */
+    public static final ConfigKey<Boolean> EVENT_DRIVEN_CONTEXTS = notReloadable(booleanKey("event-driven-contexts", false));
+
+    /**
+     * How many milliseconds calculated contexts are cached for when {@link #EVENT_DRIVEN_CONTEXTS}
+     * is enabled. Catches changes from calculators which never signal an update.
+     */
+    public static final ConfigKey<Integer> CONTEXT_CACHE_FALLBACK_EXPIRY = notReloadable(key(c -> Math.max(50, c.getInteger("context-cache-fallback-expiry", 1000))));
+
+    /**
+     * How often a stack trace is captured for checks recorded by verbose - every Nth check, or never if 0
+     */
+    public static final ConfigKey<Integer> VERBOSE_TRACE_SAMPLING = key(c -> Math.max(0, c.getInteger("verbose-trace-sampling", 1)));
+
     /**
      * The default global contexts instance
      */
@@ -241,6 +264,16 @@ public final class ConfigKeys {
      */
     public static final ConfigKey<Boolean> APPLYING_SHORTHAND = notReloadable(booleanKey("apply-shorthand", true));
 
+    /**
+     * If the map, regex and wildcard processors should be replaced by a single compiled trie
+     */
+    public static final ConfigKey<Boolean> COMPILED_PERMISSION_LOOKUPS = notReloadable(booleanKey("compiled-permission-lookups", false));
+
+    /**
+     * The maximum number of permission lookups to cache per calculator. A value <= 0 means the cache is unbounded.
+     */
+    public static final ConfigKey<Integer> PERMISSION_LOOKUP_CACHE_SIZE = notReloadable(key(c -> c.getInteger("permission-lookup-cache-size", -1)));
+
     /**
      * If Bukkit child permissions are being applied. This setting is ignored on other platforms.
      */
@@ -302,6 +335,12 @@ public final class ConfigKeys {
      */
     public static final ConfigKey<Boolean> POST_TRAVERSAL_INHERITANCE_SORT = booleanKey("post-traversal-inheritance-sort", false);
 
+    /**
+     * If users should resolve permissions by merging flattened snapshots of their parent groups,
+     * instead of walking the whole inheritance graph
+     */
+    public static final ConfigKey<Boolean> SHARED_GROUP_PERMISSION_SNAPSHOTS = booleanKey("shared-group-permission-snapshots", false);
+
     /**
      * The meta value selector
      */
@@ -540,6 +579,26 @@ public final class ConfigKeys {
      */
     public static final ConfigKey<Boolean> WATCH_FILES = booleanKey("watch-files", true);
 
+    /**
+     * The size (in kilobytes) at which segments of the file-based action log are rolled over
+     */
+    public static final ConfigKey<Integer> ACTION_LOG_SEGMENT_SIZE = notReloadable(key(c -> Math.max(64, c.getInteger("action-log-segment-size", 4096))));
+
+    /**
+     * The age (in hours) at which segments of the file-based action log are rolled over, or 0 for no limit
+     */
+    public static final ConfigKey<Integer> ACTION_LOG_SEGMENT_DURATION = notReloadable(key(c -> Math.max(0, c.getInteger("action-log-segment-duration", 24))));
+
+    /**
+     * If rolled over segments of the file-based action log should be compressed
+     */
+    public static final ConfigKey<Boolean> COMPRESS_ACTION_LOG_SEGMENTS = notReloadable(booleanKey("compress-action-log-segments", true));
+
+    /**
+     * How long (in days) actions in the file-based action log are retained for, or 0 to keep them forever
+     */
+    public static final ConfigKey<Integer> ACTION_LOG_RETENTION = notReloadable(key(c -> Math.max(0, c.getInteger("action-log-retention", 0))));
+
     /**
      * If split storage is being used
      */
@@ -57,13 +57,23 @@ public abstract class ContextManager<S, P> {
     private final List<ContextCalculator<? super S>> calculators = new CopyOnWriteArrayList<>();
     private final List<StaticContextCalculator> staticCalculators = new CopyOnWriteArrayList<>();
 
+    // if caches are only invalidated when an update is signalled
+    private final boolean eventDriven;
+    // how long calculated contexts are cached for
+    private final long cacheDurationMillis;
+
     // caches static context lookups
-    private final StaticLookupCache staticLookupCache = new StaticLookupCache();
+    private final StaticLookupCache staticLookupCache;
 
     protected ContextManager(LuckPermsPlugin plugin, Class<S> subjectClass, Class<P> playerClass) {
         this.plugin = plugin;
         this.subjectClass = subjectClass;
         this.playerClass = playerClass;
+        this.eventDriven = plugin.getConfiguration().get(ConfigKeys.EVENT_DRIVEN_CONTEXTS);
+        this.cacheDurationMillis = this.eventDriven
+                ? plugin.getConfiguration().get(ConfigKeys.CONTEXT_CACHE_FALLBACK_EXPIRY)
+                : 50L; // expire roughly every tick
+        this.staticLookupCache = new StaticLookupCache();
     }
 
     public Class<S> getSubjectClass() {
@@ -74,6 +84,15 @@ public abstract class ContextManager<S, P> {
         return this.playerClass;
     }
 
+    /**
+     * Gets how long calculated contexts should be cached for, in milliseconds.
+     *
+     * @return the cache duration
+     */
+    public long getCacheDuration() {
+        return this.cacheDurationMillis;
+    }
+
     public abstract UUID getUniqueId(P player);
 
     public abstract QueryOptionsSupplier getCacheFor(S subject);
@@ -124,6 +143,16 @@ public abstract class ContextManager<S, P> {
 
     protected abstract void invalidateCache(S subject);
 
+    /**
+     * Invalidates all cached context lookups.
+     *
+     * <p>Implementations which cache lookups per subject should override this
+     * method to invalidate those caches too.</p>
+     */
+    protected void invalidateAllCaches() {
+        this.staticLookupCache.invalidate();
+    }
+
     public void registerCalculator(ContextCalculator<? super S> calculator) {
         // calculators registered first should have priority (and be checked last.)
         this.calculators.add(0, calculator);
@@ -132,6 +161,11 @@ public abstract class ContextManager<S, P> {
             StaticContextCalculator staticCalculator = (StaticContextCalculator) calculator;
             this.staticCalculators.add(0, staticCalculator);
         }
+
+        // cached lookups won't expire for a while, so make the change visible now
+        if (this.eventDriven) {
+            invalidateAllCaches();
+        }
     }
 
     public void unregisterCalculator(ContextCalculator<? super S> calculator) {
@@ -139,6 +173,10 @@ public abstract class ContextManager<S, P> {
         if (calculator instanceof StaticContextCalculator) {
             this.staticCalculators.remove(calculator);
         }
+
+        if (this.eventDriven) {
+            invalidateAllCaches();
+        }
     }
 
     protected QueryOptions calculate(S subject) {
@@ -185,7 +223,7 @@ public abstract class ContextManager<S, P> {
 
     private final class StaticLookupCache extends ExpiringCache<QueryOptions> {
         StaticLookupCache() {
-            super(50L, TimeUnit.MILLISECONDS);
+            super(getCacheDuration(), TimeUnit.MILLISECONDS);
         }
 
         @Override
@@ -43,15 +43,28 @@ public final class QueryOptionsCache<T> extends ExpiringCache<QueryOptions> impl
     private final T subject;
     private final ContextManager<T, ?> contextManager;
 
+    // the most recently calculated value
+    private QueryOptions previous = null;
+
     public QueryOptionsCache(T subject, ContextManager<T, ?> contextManager) {
-        super(50L, TimeUnit.MILLISECONDS); // expire roughly every tick
+        super(contextManager.getCacheDuration(), TimeUnit.MILLISECONDS);
         this.subject = subject;
         this.contextManager = contextManager;
     }
 
     @Override
     protected @NonNull QueryOptions supply() {
-        return this.contextManager.calculate(this.subject);
+        QueryOptions queryOptions = this.contextManager.calculate(this.subject);
+
+        // if nothing has changed, hand out the same instance again - its hash is
+        // already computed, and identity checks in downstream caches will hit.
+        QueryOptions previous = this.previous;
+        if (previous != null && previous.equals(queryOptions)) {
+            return previous;
+        }
+
+        this.previous = queryOptions;
+        return queryOptions;
     }
 
     @Override
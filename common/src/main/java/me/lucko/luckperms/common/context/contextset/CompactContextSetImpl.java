@@ -0,0 +1,431 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.context.contextset;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Multimaps;
+import com.google.common.collect.SetMultimap;
+
+import net.luckperms.api.context.Context;
+import net.luckperms.api.context.ContextSatisfyMode;
+import net.luckperms.api.context.ContextSet;
+import net.luckperms.api.context.ImmutableContextSet;
+import net.luckperms.api.context.MutableContextSet;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * An {@link ImmutableContextSet} backed by sorted parallel key/value arrays.
+ *
+ * <p>Almost all context sets only contain a handful of entries, so this implementation
+ * is used by the {@link ImmutableContextSetImpl.BuilderImpl builder} in place of
+ * {@link ImmutableContextSetImpl} for sets of up to {@link #MAX_SIZE} entries.</p>
+ *
+ * <p>Entries are ordered by key, then by value. This means lookups can stop early, and
+ * {@link #isSatisfiedBy(ContextSet, ContextSatisfyMode)} checks against another compact
+ * set can be performed by walking both arrays at once, without allocating.</p>
+ */
+public final class CompactContextSetImpl extends AbstractContextSet implements ImmutableContextSet {
+
+    /** The maximum number of entries to store in a compact set */
+    public static final int MAX_SIZE = 8;
+
+    /**
+     * Creates a new compact set from the given entries.
+     *
+     * <p>The entries must already be sanitized, contain no duplicates and
+     * fit within {@link #MAX_SIZE}. The arrays are not modified.</p>
+     *
+     * @param keys the keys
+     * @param values the values
+     * @param size the number of entries to read from the arrays
+     * @return a new set
+     */
+    static CompactContextSetImpl of(String[] keys, String[] values, int size) {
+        String[] sortedKeys = Arrays.copyOf(keys, size);
+        String[] sortedValues = Arrays.copyOf(values, size);
+
+        // insertion sort - the arrays are tiny
+        for (int i = 1; i < size; i++) {
+            String key = sortedKeys[i];
+            String value = sortedValues[i];
+            int j = i - 1;
+            while (j >= 0 && compare(sortedKeys[j], sortedValues[j], key, value) > 0) {
+                sortedKeys[j + 1] = sortedKeys[j];
+                sortedValues[j + 1] = sortedValues[j];
+                j--;
+            }
+            sortedKeys[j + 1] = key;
+            sortedValues[j + 1] = value;
+        }
+
+        return new CompactContextSetImpl(sortedKeys, sortedValues);
+    }
+
+    static CompactContextSetImpl of(SetMultimap<String, String> map) {
+        int size = map.size();
+        String[] keys = new String[size];
+        String[] values = new String[size];
+        int i = 0;
+        for (Map.Entry<String, String> e : map.entries()) {
+            keys[i] = e.getKey();
+            values[i] = e.getValue();
+            i++;
+        }
+        return of(keys, values, size);
+    }
+
+    private static int compare(String key1, String value1, String key2, String value2) {
+        int i = key1.compareTo(key2);
+        return i != 0 ? i : value1.compareTo(value2);
+    }
+
+    private final String[] keys;
+    private final String[] values;
+    private final int hashCode;
+
+    // lazily created views
+    private ImmutableList<Context> contexts = null;
+    private ImmutableSetMultimap<String, String> map = null;
+
+    private CompactContextSetImpl(String[] keys, String[] values) {
+        this.keys = keys;
+        this.values = values;
+        this.hashCode = calculateHashCode();
+    }
+
+    // consistent with the hashCode of an equivalent SetMultimap, so
+    // compact sets can be compared with the other implementations
+    private int calculateHashCode() {
+        int hash = 0;
+        int i = 0;
+        while (i < this.keys.length) {
+            String key = this.keys[i];
+            int valuesHash = 0;
+            for (; i < this.keys.length && this.keys[i].equals(key); i++) {
+                valuesHash += this.values[i].hashCode();
+            }
+            hash += key.hashCode() ^ valuesHash;
+        }
+        return hash;
+    }
+
+    @Override
+    protected SetMultimap<String, String> backing() {
+        ImmutableSetMultimap<String, String> map = this.map;
+        if (map == null) {
+            ImmutableSetMultimap.Builder<String, String> builder = ImmutableSetMultimap.builder();
+            for (int i = 0; i < this.keys.length; i++) {
+                builder.put(this.keys[i], this.values[i]);
+            }
+            this.map = map = builder.build();
+        }
+        return map;
+    }
+
+    @Override
+    protected void copyTo(SetMultimap<String, String> other) {
+        for (int i = 0; i < this.keys.length; i++) {
+            other.put(this.keys[i], this.values[i]);
+        }
+    }
+
+    void copyTo(ImmutableContextSetImpl.BuilderImpl builder) {
+        for (int i = 0; i < this.keys.length; i++) {
+            builder.put(this.keys[i], this.values[i]);
+        }
+    }
+
+    @Override
+    public boolean isImmutable() {
+        return true;
+    }
+
+    @Deprecated
+    @Override // This set is already immutable!
+    public @NonNull CompactContextSetImpl immutableCopy() {
+        return this;
+    }
+
+    @Override
+    public @NonNull MutableContextSet mutableCopy() {
+        MutableContextSetImpl set = new MutableContextSetImpl();
+        copyTo(set.backing());
+        return set;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.keys.length == 0;
+    }
+
+    @Override
+    public int size() {
+        return this.keys.length;
+    }
+
+    @Override
+    public boolean containsKey(@NonNull String key) {
+        key = sanitizeKey(key);
+        for (String k : this.keys) {
+            int i = k.compareTo(key);
+            if (i == 0) {
+                return true;
+            } else if (i > 0) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public @NonNull Set<String> getValues(@NonNull String key) {
+        key = sanitizeKey(key);
+        ImmutableSet.Builder<String> builder = null;
+        for (int i = 0; i < this.keys.length; i++) {
+            if (this.keys[i].equals(key)) {
+                if (builder == null) {
+                    builder = ImmutableSet.builder();
+                }
+                builder.add(this.values[i]);
+            }
+        }
+        return builder == null ? ImmutableSet.of() : builder.build();
+    }
+
+    @Override
+    public boolean contains(@NonNull String key, @NonNull String value) {
+        return indexOf(sanitizeKey(key), sanitizeValue(value)) >= 0;
+    }
+
+    private int indexOf(String key, String value) {
+        for (int i = 0; i < this.keys.length; i++) {
+            int c = compare(this.keys[i], this.values[i], key, value);
+            if (c == 0) {
+                return i;
+            } else if (c > 0) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private ImmutableList<Context> contexts() {
+        ImmutableList<Context> contexts = this.contexts;
+        if (contexts == null) {
+            Context[] array = new Context[this.keys.length];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = new ContextImpl(this.keys[i], this.values[i]);
+            }
+            this.contexts = contexts = ImmutableList.copyOf(array);
+        }
+        return contexts;
+    }
+
+    @Override
+    public @NonNull Set<Context> toSet() {
+        return ImmutableSet.copyOf(contexts());
+    }
+
+    @Override
+    public @NonNull Map<String, Set<String>> toMap() {
+        return Multimaps.asMap(backing());
+    }
+
+    @Deprecated
+    @Override
+    public @NonNull Map<String, String> toFlattenedMap() {
+        ImmutableMap.Builder<String, String> m = ImmutableMap.builder();
+        for (int i = 0; i < this.keys.length; i++) {
+            m.put(this.keys[i], this.values[i]);
+        }
+        return m.build();
+    }
+
+    @Override
+    public @NonNull Iterator<Context> iterator() {
+        return contexts().iterator();
+    }
+
+    @Override
+    public Spliterator<Context> spliterator() {
+        return contexts().spliterator();
+    }
+
+    @Override
+    public void forEach(Consumer<? super Context> action) {
+        contexts().forEach(action);
+    }
+
+    @Override
+    protected boolean otherContainsAll(ContextSet other, ContextSatisfyMode mode) {
+        if (other instanceof CompactContextSetImpl) {
+            return otherContainsAll((CompactContextSetImpl) other, mode);
+        }
+
+        switch (mode) {
+            // Use other.contains
+            case ALL_VALUES_PER_KEY: {
+                for (int i = 0; i < this.keys.length; i++) {
+                    if (!other.contains(this.keys[i], this.values[i])) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            // Use other.contains on each value until one matches
+            case AT_LEAST_ONE_VALUE_PER_KEY: {
+                int i = 0;
+                while (i < this.keys.length) {
+                    String key = this.keys[i];
+                    boolean found = false;
+                    for (; i < this.keys.length && this.keys[i].equals(key); i++) {
+                        if (!found && other.contains(key, this.values[i])) {
+                            found = true;
+                        }
+                    }
+                    if (!found) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown mode: " + mode);
+        }
+    }
+
+    // both sets are sorted, so walk through them together
+    private boolean otherContainsAll(CompactContextSetImpl other, ContextSatisfyMode mode) {
+        String[] otherKeys = other.keys;
+        String[] otherValues = other.values;
+
+        switch (mode) {
+            case ALL_VALUES_PER_KEY: {
+                int j = 0;
+                for (int i = 0; i < this.keys.length; i++) {
+                    int c = -1;
+                    while (j < otherKeys.length && (c = compare(otherKeys[j], otherValues[j], this.keys[i], this.values[i])) < 0) {
+                        j++;
+                    }
+                    if (c != 0) {
+                        return false;
+                    }
+                    j++;
+                }
+                return true;
+            }
+
+            case AT_LEAST_ONE_VALUE_PER_KEY: {
+                int i = 0;
+                int j = 0;
+                while (i < this.keys.length) {
+                    String key = this.keys[i];
+
+                    // find the range of entries for the key in each set
+                    int iEnd = i + 1;
+                    while (iEnd < this.keys.length && this.keys[iEnd].equals(key)) {
+                        iEnd++;
+                    }
+                    while (j < otherKeys.length && otherKeys[j].compareTo(key) < 0) {
+                        j++;
+                    }
+                    int jEnd = j;
+                    while (jEnd < otherKeys.length && otherKeys[jEnd].equals(key)) {
+                        jEnd++;
+                    }
+
+                    // values within each range are sorted too
+                    boolean found = false;
+                    int a = i;
+                    int b = j;
+                    while (a < iEnd && b < jEnd) {
+                        int c = this.values[a].compareTo(otherValues[b]);
+                        if (c == 0) {
+                            found = true;
+                            break;
+                        } else if (c < 0) {
+                            a++;
+                        } else {
+                            b++;
+                        }
+                    }
+                    if (!found) {
+                        return false;
+                    }
+
+                    i = iEnd;
+                    j = jEnd;
+                }
+                return true;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown mode: " + mode);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) return true;
+        if (!(o instanceof ContextSet)) return false;
+
+        if (o instanceof CompactContextSetImpl) {
+            CompactContextSetImpl that = (CompactContextSetImpl) o;
+            return this.hashCode == that.hashCode &&
+                    Arrays.equals(this.keys, that.keys) &&
+                    Arrays.equals(this.values, that.values);
+        }
+        if (o instanceof ImmutableContextSetImpl && this.hashCode != o.hashCode()) {
+            return false;
+        }
+
+        // the other set is the same size and contains every entry in this set
+        final ContextSet that = (ContextSet) o;
+        return this.keys.length == that.size() && otherContainsAll(that, ContextSatisfyMode.ALL_VALUES_PER_KEY);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return "ImmutableContextSet(contexts=" + backing() + ")";
+    }
+}
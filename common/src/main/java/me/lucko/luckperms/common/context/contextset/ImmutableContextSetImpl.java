@@ -29,6 +29,8 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
 import com.google.common.collect.SetMultimap;
@@ -51,6 +53,27 @@ import java.util.Spliterator;
 public final class ImmutableContextSetImpl extends AbstractContextSet implements ImmutableContextSet {
     public static final ImmutableContextSetImpl EMPTY = new ImmutableContextSetImpl(ImmutableSetMultimap.of());
 
+    /**
+     * Pool of canonical context set instances.
+     *
+     * <p>The same few context sets are built over and over again (once per context
+     * calculation, per player), so equal sets are resolved to a single shared instance.</p>
+     */
+    private static final Interner<ImmutableContextSet> INTERNER = Interners.newWeakInterner();
+
+    /**
+     * Gets the canonical instance of the given context set.
+     *
+     * @param contextSet the context set
+     * @return the canonical instance
+     */
+    public static ImmutableContextSet intern(ImmutableContextSet contextSet) {
+        if (contextSet.isEmpty()) {
+            return EMPTY;
+        }
+        return INTERNER.intern(contextSet);
+    }
+
     public static ImmutableContextSet of(String key, String value) {
         key = sanitizeKey(key);
         value = sanitizeValue(value);
@@ -60,7 +83,24 @@ public final class ImmutableContextSetImpl extends AbstractContextSet implements
             return EMPTY;
         }
 
-        return new ImmutableContextSetImpl(ImmutableSetMultimap.of(key, sanitizeValue(value)));
+        return intern(CompactContextSetImpl.of(new String[]{key}, new String[]{value}, 1));
+    }
+
+    /**
+     * Creates an immutable copy of the given multimap, using a compact
+     * representation if it is small enough.
+     *
+     * @param map the map to copy
+     * @return an immutable context set
+     */
+    static ImmutableContextSet copyOf(SetMultimap<String, String> map) {
+        if (map.isEmpty()) {
+            return EMPTY;
+        }
+        if (map.size() <= CompactContextSetImpl.MAX_SIZE) {
+            return intern(CompactContextSetImpl.of(map));
+        }
+        return intern(new ImmutableContextSetImpl(ImmutableSetMultimap.copyOf(map)));
     }
 
     private final ImmutableSetMultimap<String, String> map;
@@ -181,6 +221,8 @@ public final class ImmutableContextSetImpl extends AbstractContextSet implements
         if (that instanceof ImmutableContextSetImpl) {
             ImmutableContextSetImpl immutableThat = (ImmutableContextSetImpl) that;
             if (this.hashCode != immutableThat.hashCode) return false;
+        } else if (that instanceof CompactContextSetImpl) {
+            if (this.hashCode != that.hashCode()) return false;
         }
 
         final Multimap<String, String> thatBacking;
@@ -209,25 +251,53 @@ public final class ImmutableContextSetImpl extends AbstractContextSet implements
     }
 
     public static final class BuilderImpl implements ImmutableContextSet.Builder {
+        // entries are collected into these arrays until there are too many for a
+        // compact set, at which point they are moved into a multimap builder
+        private String[] keys;
+        private String[] values;
+        private int size;
         private ImmutableSetMultimap.Builder<String, String> builder;
 
         public BuilderImpl() {
 
         }
 
-        private synchronized ImmutableSetMultimap.Builder<String, String> builder() {
-            if (this.builder == null) {
-                this.builder = ImmutableSetMultimap.builder();
-            }
-            return this.builder;
-        }
-
-        private void put(String key, String value) {
+        synchronized void put(String key, String value) {
             // special case for server=global and world=global
             if (isGlobalServerWorldEntry(key, value)) {
                 return;
             }
-            builder().put(key, value);
+
+            if (this.builder != null) {
+                this.builder.put(key, value);
+                return;
+            }
+
+            if (this.keys == null) {
+                this.keys = new String[CompactContextSetImpl.MAX_SIZE];
+                this.values = new String[CompactContextSetImpl.MAX_SIZE];
+            }
+
+            for (int i = 0; i < this.size; i++) {
+                if (this.keys[i].equals(key) && this.values[i].equals(value)) {
+                    return;
+                }
+            }
+
+            if (this.size == CompactContextSetImpl.MAX_SIZE) {
+                this.builder = ImmutableSetMultimap.builder();
+                for (int i = 0; i < this.size; i++) {
+                    this.builder.put(this.keys[i], this.values[i]);
+                }
+                this.builder.put(key, value);
+                this.keys = null;
+                this.values = null;
+                return;
+            }
+
+            this.keys[this.size] = key;
+            this.values[this.size] = value;
+            this.size++;
         }
 
         @Override
@@ -239,10 +309,14 @@ public final class ImmutableContextSetImpl extends AbstractContextSet implements
         @Override
         public @NonNull BuilderImpl addAll(@NonNull ContextSet contextSet) {
             Objects.requireNonNull(contextSet, "contextSet");
-            if (contextSet instanceof AbstractContextSet) {
+            if (contextSet instanceof CompactContextSetImpl) {
+                ((CompactContextSetImpl) contextSet).copyTo(this);
+            } else if (contextSet instanceof AbstractContextSet) {
                 AbstractContextSet other = ((AbstractContextSet) contextSet);
                 if (!other.isEmpty()) {
-                    builder().putAll(other.backing());
+                    for (Map.Entry<String, String> e : other.backing().entries()) {
+                        put(e.getKey(), e.getValue());
+                    }
                 }
             } else {
                 addAll(contextSet.toSet());
@@ -251,11 +325,13 @@ public final class ImmutableContextSetImpl extends AbstractContextSet implements
         }
 
         @Override
-        public @NonNull ImmutableContextSet build() {
-            if (this.builder == null) {
+        public synchronized @NonNull ImmutableContextSet build() {
+            if (this.builder != null) {
+                return intern(new ImmutableContextSetImpl(this.builder.build()));
+            } else if (this.size == 0) {
                 return EMPTY;
             } else {
-                return new ImmutableContextSetImpl(this.builder.build());
+                return intern(CompactContextSetImpl.of(this.keys, this.values, this.size));
             }
         }
     }
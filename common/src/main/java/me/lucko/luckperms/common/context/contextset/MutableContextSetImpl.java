@@ -84,7 +84,7 @@ public final class MutableContextSetImpl extends AbstractContextSet implements M
             return ImmutableContextSetImpl.EMPTY;
         }
         synchronized (this.map) {
-            return new ImmutableContextSetImpl(ImmutableSetMultimap.copyOf(this.map));
+            return ImmutableContextSetImpl.copyOf(this.map);
         }
     }
 
@@ -36,8 +36,10 @@ import net.luckperms.api.event.LuckPermsEvent;
 
 import org.checkerframework.checker.nullness.qual.NonNull;
 
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -58,6 +60,13 @@ public abstract class AbstractEventBus<P> implements EventBus, AutoCloseable {
      */
     private final Bus bus = new Bus();
 
+    /**
+     * The number of subscriptions that will receive each event class, cached
+     * so that {@link #shouldPost(Class)} is cheap enough to call before any work
+     * is done to construct an event
+     */
+    private final Map<Class<? extends LuckPermsEvent>, Integer> subscriberCounts = new ConcurrentHashMap<>();
+
     protected AbstractEventBus(LuckPermsPlugin plugin, LuckPermsApiProvider apiProvider) {
         this.plugin = plugin;
         this.apiProvider = apiProvider;
@@ -85,7 +94,19 @@ public abstract class AbstractEventBus<P> implements EventBus, AutoCloseable {
     }
 
     public boolean shouldPost(Class<? extends LuckPermsEvent> eventClass) {
-        return this.bus.hasSubscribers(eventClass);
+        Integer count = this.subscriberCounts.get(eventClass);
+        if (count == null) {
+            count = computeSubscriberCount(eventClass);
+        }
+        return count != 0;
+    }
+
+    private synchronized int computeSubscriberCount(Class<? extends LuckPermsEvent> eventClass) {
+        return this.subscriberCounts.computeIfAbsent(eventClass, this.bus::countSubscribers);
+    }
+
+    private synchronized void refreshSubscriberCounts() {
+        this.subscriberCounts.replaceAll((eventClass, count) -> this.bus.countSubscribers(eventClass));
     }
 
     public void subscribe(LuckPermsEventListener listener) {
@@ -116,7 +137,10 @@ public abstract class AbstractEventBus<P> implements EventBus, AutoCloseable {
         }
 
         LuckPermsEventSubscription<T> eventHandler = new LuckPermsEventSubscription<>(this, eventClass, handler, plugin);
-        this.bus.register(eventClass, eventHandler);
+        synchronized (this) {
+            this.bus.register(eventClass, eventHandler);
+            refreshSubscriberCounts();
+        }
 
         return eventHandler;
     }
@@ -132,7 +156,10 @@ public abstract class AbstractEventBus<P> implements EventBus, AutoCloseable {
      * @param handler the handler to remove
      */
     public void unregisterHandler(LuckPermsEventSubscription<?> handler) {
-        this.bus.unregister(handler);
+        synchronized (this) {
+            this.bus.unregister(handler);
+            refreshSubscriberCounts();
+        }
     }
 
     /**
@@ -141,12 +168,16 @@ public abstract class AbstractEventBus<P> implements EventBus, AutoCloseable {
      * @param plugin the plugin
      */
     protected void unregisterHandlers(P plugin) {
-        this.bus.unregister(sub -> ((LuckPermsEventSubscription<?>) sub).getPlugin() == plugin);
+        synchronized (this) {
+            this.bus.unregister(sub -> ((LuckPermsEventSubscription<?>) sub).getPlugin() == plugin);
+            refreshSubscriberCounts();
+        }
     }
 
     @Override
-    public void close() {
+    public synchronized void close() {
         this.bus.unregisterAll();
+        refreshSubscriberCounts();
     }
 
     private static final class Bus extends SimpleEventBus<LuckPermsEvent> {
@@ -166,5 +197,11 @@ public abstract class AbstractEventBus<P> implements EventBus, AutoCloseable {
                     .map(s -> ((EventSubscription<T>) s))
                     .collect(Collectors.toSet());
         }
+
+        public int countSubscribers(Class<? extends LuckPermsEvent> eventClass) {
+            return (int) super.subscribers().values().stream()
+                    .filter(s -> s instanceof EventSubscription && ((EventSubscription<?>) s).getEventClass().isAssignableFrom(eventClass))
+                    .count();
+        }
     }
 }
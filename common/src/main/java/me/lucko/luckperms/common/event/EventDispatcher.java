@@ -27,6 +27,7 @@ package me.lucko.luckperms.common.event;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
 
 import me.lucko.luckperms.common.api.implementation.ApiPermissionHolder;
 import me.lucko.luckperms.common.cacheddata.GroupCachedDataManager;
@@ -40,6 +41,7 @@ import me.lucko.luckperms.common.model.HolderType;
 import me.lucko.luckperms.common.model.PermissionHolder;
 import me.lucko.luckperms.common.model.Track;
 import me.lucko.luckperms.common.model.User;
+import me.lucko.luckperms.common.plugin.scheduler.SchedulerTask;
 import me.lucko.luckperms.common.sender.Sender;
 
 import net.luckperms.api.actionlog.Action;
@@ -61,6 +63,7 @@ import net.luckperms.api.event.log.LogPublishEvent;
 import net.luckperms.api.event.log.LogReceiveEvent;
 import net.luckperms.api.event.node.NodeAddEvent;
 import net.luckperms.api.event.node.NodeClearEvent;
+import net.luckperms.api.event.node.NodeMutateBatchEvent;
 import net.luckperms.api.event.node.NodeRemoveEvent;
 import net.luckperms.api.event.player.PlayerDataSaveEvent;
 import net.luckperms.api.event.player.PlayerLoginProcessEvent;
@@ -90,16 +93,39 @@ import net.luckperms.api.node.Node;
 
 import org.checkerframework.checker.nullness.qual.Nullable;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 
 public final class EventDispatcher {
+
+    /**
+     * The number of events which can be queued by a batch before they are
+     * posted, even if the batch is still open
+     */
+    private static final int BATCH_FLUSH_THRESHOLD = 1000;
+
+    /**
+     * How often (in milliseconds) the events queued by an open batch are posted
+     */
+    private static final long BATCH_FLUSH_INTERVAL = 1000;
+
     private final AbstractEventBus<?> eventBus;
 
+    /**
+     * The batch which is open on the current thread, if any
+     */
+    private final ThreadLocal<Batch> currentBatch = new ThreadLocal<>();
+
     public EventDispatcher(AbstractEventBus<?> eventBus) {
         this.eventBus = eventBus;
     }
@@ -121,15 +147,141 @@ public final class EventDispatcher {
             throw new RuntimeException("Cancellable event cannot be posted async (" + eventClass + ")");
         }
 
-        this.eventBus.getPlugin().getBootstrap().getScheduler().executeAsync(() -> {
+        // avoid scheduling a task at all if nobody is listening
+        if (!shouldPost(eventClass)) {
+            return;
+        }
+
+        Runnable task = () -> {
+            // check again, the subscription may have been removed in the meantime
             if (!shouldPost(eventClass)) {
                 return;
             }
             T event = supplier.get();
             post(event);
-        });
+        };
+
+        Batch batch = this.currentBatch.get();
+        if (batch != null) {
+            batch.add(task);
+        } else {
+            this.eventBus.getPlugin().getBootstrap().getScheduler().executeAsync(task);
+        }
+    }
+
+    /**
+     * Opens a new batch on the current thread.
+     *
+     * <p>Whilst a batch is open, async events posted by the thread which opened it
+     * (or by tasks {@link Batch#wrap(Runnable) wrapped} by it) are queued instead of
+     * each being scheduled as a separate task. The queued events are posted together
+     * in a single task every {@value #BATCH_FLUSH_INTERVAL}ms, once
+     * {@value #BATCH_FLUSH_THRESHOLD} have been queued, and when the batch is closed.
+     * Events posted by other threads are not affected.</p>
+     *
+     * <p>This should be used around bulk operations (e.g. sync or import) which
+     * are likely to dispatch a large number of events.</p>
+     *
+     * @return the batch, to be closed by the same thread once the operation is complete
+     */
+    public Batch openBatch() {
+        Batch batch = new Batch(this.currentBatch.get());
+        this.currentBatch.set(batch);
+        return batch;
+    }
+
+    /**
+     * Wraps a task so that events it posts are added to the batch open on the
+     * calling thread, if there is one.
+     *
+     * @param task the task
+     * @return the wrapped task, or the task itself if no batch is open
+     */
+    public Runnable wrapInCurrentBatch(Runnable task) {
+        Batch batch = this.currentBatch.get();
+        return batch == null ? task : batch.wrap(task);
+    }
+
+    /**
+     * A batch of async events, opened by {@link #openBatch()}.
+     */
+    public final class Batch implements AutoCloseable {
+        private final @Nullable Batch previous;
+        private final Thread owner = Thread.currentThread();
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicBoolean closed = new AtomicBoolean(false);
+        private final SchedulerTask flushTask;
+
+        private Batch(@Nullable Batch previous) {
+            this.previous = previous;
+            this.flushTask = EventDispatcher.this.eventBus.getPlugin().getBootstrap().getScheduler().asyncRepeating(this::flush, BATCH_FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * Wraps a task so that events it posts are added to this batch, for use
+         * when the operation which opened the batch hands work to other threads.
+         *
+         * @param task the task
+         * @return the wrapped task
+         */
+        public Runnable wrap(Runnable task) {
+            return () -> {
+                Batch previous = EventDispatcher.this.currentBatch.get();
+                EventDispatcher.this.currentBatch.set(this);
+                try {
+                    task.run();
+                } finally {
+                    EventDispatcher.this.currentBatch.set(previous);
+                }
+            };
+        }
+
+        private void add(Runnable task) {
+            this.tasks.add(task);
+
+            // flush if the batch has grown too large, or if it was closed
+            // while the task was being added
+            if (this.size.incrementAndGet() >= BATCH_FLUSH_THRESHOLD || this.closed.get()) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            List<Runnable> tasks = new ArrayList<>();
+            for (Runnable task; (task = this.tasks.poll()) != null; ) {
+                tasks.add(task);
+            }
+            if (tasks.isEmpty()) {
+                return;
+            }
+
+            this.size.addAndGet(-tasks.size());
+            EventDispatcher.this.eventBus.getPlugin().getBootstrap().getScheduler().executeAsync(() -> {
+                for (Runnable task : tasks) {
+                    task.run();
+                }
+            });
+        }
+
+        @Override
+        public void close() {
+            if (!this.closed.compareAndSet(false, true)) {
+                return;
+            }
+
+            if (Thread.currentThread() == this.owner && EventDispatcher.this.currentBatch.get() == this) {
+                if (this.previous != null) {
+                    EventDispatcher.this.currentBatch.set(this.previous);
+                } else {
+                    EventDispatcher.this.currentBatch.remove();
+                }
+            }
+            this.flushTask.cancel();
+            flush();
+        }
     }
-    
+
     @SuppressWarnings("unchecked")
     private <T extends LuckPermsEvent> T generate(Class<T> eventClass, Object... params) {
         try {
@@ -152,6 +304,10 @@ public final class EventDispatcher {
     }
 
     public void dispatchGroupCacheLoad(Group group, GroupCachedDataManager data) {
+        if (!shouldPost(GroupCacheLoadEvent.class)) {
+            return;
+        }
+
         post(GroupCacheLoadEvent.class, () -> generate(GroupCacheLoadEvent.class, group.getApiProxy(), data));
     }
 
@@ -168,6 +324,10 @@ public final class EventDispatcher {
     }
 
     public void dispatchGroupLoad(Group group) {
+        if (!shouldPost(GroupLoadEvent.class)) {
+            return;
+        }
+
         post(GroupLoadEvent.class, () -> generate(GroupLoadEvent.class, group.getApiProxy()));
     }
 
@@ -216,14 +376,44 @@ public final class EventDispatcher {
     }
 
     public void dispatchNodeAdd(Node node, PermissionHolder target, DataType dataType, Collection<? extends Node> before, Collection<? extends Node> after) {
+        if (!shouldPost(NodeAddEvent.class)) {
+            return;
+        }
+
         post(NodeAddEvent.class, () -> generate(NodeAddEvent.class, proxy(target), dataType, ImmutableSet.copyOf(before), ImmutableSet.copyOf(after), node));
     }
 
     public void dispatchNodeClear(PermissionHolder target, DataType dataType, Collection<? extends Node> before, Collection<? extends Node> after) {
+        if (!shouldPost(NodeClearEvent.class)) {
+            return;
+        }
+
         post(NodeClearEvent.class, () -> generate(NodeClearEvent.class, proxy(target), dataType, ImmutableSet.copyOf(before), ImmutableSet.copyOf(after)));
     }
 
+    /**
+     * Gets if a {@link NodeMutateBatchEvent} would be posted, so callers can avoid
+     * capturing the before and after states when nothing is listening.
+     *
+     * @return if the event has any subscribers
+     */
+    public boolean shouldPostNodeMutateBatch() {
+        return shouldPost(NodeMutateBatchEvent.class);
+    }
+
+    public void dispatchNodeMutateBatch(PermissionHolder target, DataType dataType, Set<Node> before, Set<Node> after) {
+        if (!shouldPost(NodeMutateBatchEvent.class)) {
+            return;
+        }
+
+        post(NodeMutateBatchEvent.class, () -> generate(NodeMutateBatchEvent.class, proxy(target), dataType, ImmutableSet.copyOf(before), ImmutableSet.copyOf(after), ImmutableSet.copyOf(Sets.difference(after, before)), ImmutableSet.copyOf(Sets.difference(before, after))));
+    }
+
     public void dispatchNodeRemove(Node node, PermissionHolder target, DataType dataType, Collection<? extends Node> before, Collection<? extends Node> after) {
+        if (!shouldPost(NodeRemoveEvent.class)) {
+            return;
+        }
+
         post(NodeRemoveEvent.class, () -> generate(NodeRemoveEvent.class, proxy(target), dataType, ImmutableSet.copyOf(before), ImmutableSet.copyOf(after), node));
     }
 
@@ -284,14 +474,26 @@ public final class EventDispatcher {
     }
 
     public void dispatchUserCacheLoad(User user, UserCachedDataManager data) {
+        if (!shouldPost(UserCacheLoadEvent.class)) {
+            return;
+        }
+
         post(UserCacheLoadEvent.class, () -> generate(UserCacheLoadEvent.class, user.getApiProxy(), data));
     }
 
     public void dispatchDataRecalculate(PermissionHolder holder) {
         if (holder.getType() == HolderType.USER) {
+            if (!shouldPost(UserDataRecalculateEvent.class)) {
+                return;
+            }
+
             User user = (User) holder;
             post(UserDataRecalculateEvent.class, () -> generate(UserDataRecalculateEvent.class, user.getApiProxy(), user.getCachedData()));
         } else {
+            if (!shouldPost(GroupDataRecalculateEvent.class)) {
+                return;
+            }
+
             Group group = (Group) holder;
             post(GroupDataRecalculateEvent.class, () -> generate(GroupDataRecalculateEvent.class, group.getApiProxy(), group.getCachedData()));
         }
@@ -314,6 +516,10 @@ public final class EventDispatcher {
     }
 
     public void dispatchUserLoad(User user) {
+        if (!shouldPost(UserLoadEvent.class)) {
+            return;
+        }
+
         post(UserLoadEvent.class, () -> generate(UserLoadEvent.class, user.getApiProxy()));
     }
 
@@ -358,6 +564,7 @@ public final class EventDispatcher {
                 LogReceiveEvent.class,
                 NodeAddEvent.class,
                 NodeClearEvent.class,
+                NodeMutateBatchEvent.class,
                 NodeRemoveEvent.class,
                 PlayerDataSaveEvent.class,
                 PlayerLoginProcessEvent.class,
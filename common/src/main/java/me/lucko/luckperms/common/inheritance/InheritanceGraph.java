@@ -25,19 +25,27 @@
 
 package me.lucko.luckperms.common.inheritance;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.google.common.collect.ImmutableList;
+
 import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.graph.Graph;
 import me.lucko.luckperms.common.graph.TraversalAlgorithm;
 import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.model.HolderType;
 import me.lucko.luckperms.common.model.PermissionHolder;
+import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.util.CaffeineFactory;
 
 import net.luckperms.api.node.types.InheritanceNode;
 import net.luckperms.api.query.QueryOptions;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 
 /**
@@ -51,6 +59,16 @@ public class InheritanceGraph implements Graph<PermissionHolder> {
      */
     private final QueryOptions queryOptions;
 
+    /**
+     * The sorted successors of each holder, computed when they were last requested.
+     */
+    private final Cache<PermissionHolder, Successors> successorsCache = CaffeineFactory.newBuilder().weakKeys().build();
+
+    /**
+     * The traversal order starting at each group, indexed by {@link #linearizationIndex(TraversalAlgorithm, boolean)}.
+     */
+    private final Cache<Group, Linearization[]> groupLinearizations = CaffeineFactory.newBuilder().weakKeys().build();
+
     public InheritanceGraph(LuckPermsPlugin plugin, QueryOptions queryOptions) {
         this.plugin = plugin;
         this.queryOptions = queryOptions;
@@ -58,6 +76,22 @@ public class InheritanceGraph implements Graph<PermissionHolder> {
 
     @Override
     public Iterable<? extends PermissionHolder> successors(PermissionHolder holder) {
+        // read the versions before resolving, so changes made in the meantime cause a recompute next time
+        long holderVersion = holder.getDataVersion();
+        long groupVersion = this.plugin.getGroupManager().getGroupDataVersion();
+        String primaryGroup = holder.getType() == HolderType.USER ? ((User) holder).getPrimaryGroup().getStoredValue().orElse(null) : null;
+
+        Successors cached = this.successorsCache.getIfPresent(holder);
+        if (cached != null && cached.isValid(holderVersion, groupVersion, primaryGroup)) {
+            return cached.groups;
+        }
+
+        List<Group> successors = resolveSuccessors(holder);
+        this.successorsCache.put(holder, new Successors(successors, holderVersion, groupVersion, primaryGroup));
+        return successors;
+    }
+
+    private List<Group> resolveSuccessors(PermissionHolder holder) {
         Set<Group> successors = new LinkedHashSet<>();
         for (InheritanceNode n : holder.getOwnInheritanceNodes(this.queryOptions)) {
             Group g = this.plugin.getGroupManager().getIfLoaded(n.getGroupName());
@@ -68,7 +102,7 @@ public class InheritanceGraph implements Graph<PermissionHolder> {
 
         List<Group> successorsSorted = new ArrayList<>(successors);
         successorsSorted.sort(holder.getInheritanceComparator());
-        return successorsSorted;
+        return ImmutableList.copyOf(successorsSorted);
     }
 
     /**
@@ -82,6 +116,71 @@ public class InheritanceGraph implements Graph<PermissionHolder> {
      * @return an iterable
      */
     public Iterable<PermissionHolder> traverse(TraversalAlgorithm algorithm, boolean postTraversalSort, PermissionHolder startNode) {
+        if (startNode instanceof Group) {
+            return linearize(algorithm, postTraversalSort, (Group) startNode);
+        }
+
+        if (algorithm != TraversalAlgorithm.BREADTH_FIRST) {
+            // A depth-first traversal from a holder visits each of its parents in turn, skipping
+            // groups which have already been visited. Any group reachable from an earlier parent
+            // has been visited along with everything reachable from it, so the traversal of each
+            // parent is the same as its own (precomputed) traversal, minus groups already seen.
+            boolean postOrder = algorithm == TraversalAlgorithm.DEPTH_FIRST_POST_ORDER;
+
+            List<PermissionHolder> traversal = new ArrayList<>();
+            Set<PermissionHolder> visited = new HashSet<>();
+            if (!postOrder) {
+                traversal.add(startNode);
+            }
+            for (PermissionHolder parent : successors(startNode)) {
+                for (PermissionHolder holder : linearize(algorithm, false, (Group) parent)) {
+                    if (visited.add(holder)) {
+                        traversal.add(holder);
+                    }
+                }
+            }
+            if (postOrder) {
+                traversal.add(startNode);
+            }
+
+            if (postTraversalSort) {
+                traversal.sort(startNode.getInheritanceComparator());
+            }
+            return traversal;
+        }
+
+        return walk(algorithm, postTraversalSort, startNode);
+    }
+
+    /**
+     * Gets the traversal order starting at the given group, computing it if the
+     * previously computed order is out of date.
+     *
+     * @param algorithm the algorithm to use when traversing
+     * @param postTraversalSort if a post traversal sort should be performed
+     * @param group the start node
+     * @return the traversal order
+     */
+    private List<PermissionHolder> linearize(TraversalAlgorithm algorithm, boolean postTraversalSort, Group group) {
+        long groupVersion = this.plugin.getGroupManager().getGroupDataVersion();
+        int index = linearizationIndex(algorithm, postTraversalSort);
+
+        Linearization[] linearizations = this.groupLinearizations.get(group, g -> new Linearization[TraversalAlgorithm.values().length * 2]);
+        Linearization linearization = linearizations[index];
+        if (linearization != null && linearization.groupVersion == groupVersion) {
+            return linearization.order;
+        }
+
+        List<PermissionHolder> order = ImmutableList.copyOf(walk(algorithm, postTraversalSort, group));
+        linearizations[index] = new Linearization(order, groupVersion);
+        return order;
+    }
+
+    private static int linearizationIndex(TraversalAlgorithm algorithm, boolean postTraversalSort) {
+        return algorithm.ordinal() * 2 + (postTraversalSort ? 1 : 0);
+    }
+
+    private Iterable<PermissionHolder> walk(TraversalAlgorithm algorithm, boolean postTraversalSort, PermissionHolder startNode) {
         Iterable<PermissionHolder> traversal = traverse(algorithm, startNode);
 
         // perform post traversal sort if needed
@@ -112,4 +211,44 @@ public class InheritanceGraph implements Graph<PermissionHolder> {
         );
     }
 
+    /**
+     * The traversal order starting at a group, along with the group data version it was
+     * computed at.
+     */
+    private static final class Linearization {
+        private final List<PermissionHolder> order;
+        private final long groupVersion;
+
+        Linearization(List<PermissionHolder> order, long groupVersion) {
+            this.order = order;
+            this.groupVersion = groupVersion;
+        }
+    }
+
+    /**
+     * The resolved successors of a holder, along with the state they were resolved from.
+     *
+     * <p>The ordering depends on the holders own inheritance nodes, the weights of the
+     * parent groups, and (for users) the primary group.</p>
+     */
+    private static final class Successors {
+        private final List<Group> groups;
+        private final long holderVersion;
+        private final long groupVersion;
+        private final String primaryGroup;
+
+        Successors(List<Group> groups, long holderVersion, long groupVersion, String primaryGroup) {
+            this.groups = groups;
+            this.holderVersion = holderVersion;
+            this.groupVersion = groupVersion;
+            this.primaryGroup = primaryGroup;
+        }
+
+        boolean isValid(long holderVersion, long groupVersion, String primaryGroup) {
+            return this.holderVersion == holderVersion &&
+                    this.groupVersion == groupVersion &&
+                    Objects.equals(this.primaryGroup, primaryGroup);
+        }
+    }
+
 }
@@ -0,0 +1,199 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.inheritance;
+
+import com.google.common.collect.ImmutableSet;
+
+import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.model.PermissionHolder;
+import me.lucko.luckperms.common.model.PermissionHolderIdentifier;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+
+import net.luckperms.api.model.PermissionHolder.Identifier;
+import net.luckperms.api.model.data.DataType;
+import net.luckperms.api.node.types.InheritanceNode;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A reverse index of the inheritance graph, mapping each group to the holders which inherit it.
+ *
+ * <p>Edges are recorded regardless of the context they apply in, so the index gives a
+ * conservative answer to "whose data could be affected by a change to this group?". This
+ * allows caches to be invalidated selectively, instead of for every loaded user and group.</p>
+ */
+public class InheritanceIndex {
+    private final LuckPermsPlugin plugin;
+
+    /**
+     * Maps group names to the holders which directly inherit from them
+     */
+    private final Map<String, Set<PermissionHolderIdentifier>> inheritors = new ConcurrentHashMap<>();
+
+    /**
+     * Maps holders to the group names they were last indexed as directly inheriting from
+     */
+    private final Map<PermissionHolderIdentifier, Set<String>> parents = new ConcurrentHashMap<>();
+
+    public InheritanceIndex(LuckPermsPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Updates the edges recorded for the given holder, based on its current inheritance nodes.
+     *
+     * @param holder the holder
+     */
+    public synchronized void update(PermissionHolder holder) {
+        Set<String> newParents = new HashSet<>();
+        for (DataType dataType : DataType.values()) {
+            for (InheritanceNode node : holder.getData(dataType).inheritanceAsList()) {
+                newParents.add(node.getGroupName().toLowerCase());
+            }
+        }
+
+        PermissionHolderIdentifier identifier = holder.getIdentifier();
+        Set<String> oldParents = newParents.isEmpty() ? this.parents.remove(identifier) : this.parents.put(identifier, newParents);
+        if (oldParents == null) {
+            oldParents = Collections.emptySet();
+        }
+
+        for (String parent : oldParents) {
+            if (!newParents.contains(parent)) {
+                removeEdge(parent, identifier);
+            }
+        }
+        for (String parent : newParents) {
+            if (!oldParents.contains(parent)) {
+                this.inheritors.computeIfAbsent(parent, k -> ConcurrentHashMap.newKeySet()).add(identifier);
+            }
+        }
+    }
+
+    /**
+     * Removes all edges recorded for the given holder. Called when the holder is unloaded.
+     *
+     * @param holder the holder
+     */
+    public synchronized void remove(PermissionHolder holder) {
+        PermissionHolderIdentifier identifier = holder.getIdentifier();
+        Set<String> oldParents = this.parents.remove(identifier);
+        if (oldParents != null) {
+            for (String parent : oldParents) {
+                removeEdge(parent, identifier);
+            }
+        }
+    }
+
+    private void removeEdge(String parent, PermissionHolderIdentifier identifier) {
+        Set<PermissionHolderIdentifier> set = this.inheritors.get(parent);
+        if (set != null) {
+            set.remove(identifier);
+            if (set.isEmpty()) {
+                this.inheritors.remove(parent);
+            }
+        }
+    }
+
+    /**
+     * Gets the holders which directly or transitively inherit from any of the given groups.
+     *
+     * @param groupNames the group names
+     * @return the identifiers of the inheriting holders
+     */
+    public Set<PermissionHolderIdentifier> getInheritors(Collection<String> groupNames) {
+        Set<PermissionHolderIdentifier> result = new HashSet<>();
+        Set<String> visited = new HashSet<>();
+        Queue<String> queue = new ArrayDeque<>();
+        for (String groupName : groupNames) {
+            String name = groupName.toLowerCase();
+            if (visited.add(name)) {
+                queue.add(name);
+            }
+        }
+
+        String name;
+        while ((name = queue.poll()) != null) {
+            Set<PermissionHolderIdentifier> direct = this.inheritors.get(name);
+            if (direct == null) {
+                continue;
+            }
+
+            for (PermissionHolderIdentifier identifier : direct) {
+                result.add(identifier);
+                if (identifier.getType().equals(Identifier.GROUP_TYPE) && visited.add(identifier.getName())) {
+                    queue.add(identifier.getName());
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Invalidates the cached data of all loaded holders which directly or transitively
+     * inherit from the given group.
+     *
+     * @param group the group
+     */
+    public void invalidateInheritors(Group group) {
+        invalidateInheritors(ImmutableSet.of(group.getName()));
+    }
+
+    /**
+     * Invalidates the cached data of all loaded holders which directly or transitively
+     * inherit from any of the given groups.
+     *
+     * @param groupNames the group names
+     */
+    public void invalidateInheritors(Collection<String> groupNames) {
+        if (groupNames.isEmpty()) {
+            return;
+        }
+
+        for (PermissionHolderIdentifier identifier : getInheritors(groupNames)) {
+            PermissionHolder holder = getIfLoaded(identifier);
+            if (holder != null) {
+                holder.getCachedData().invalidate();
+            }
+        }
+    }
+
+    private PermissionHolder getIfLoaded(PermissionHolderIdentifier identifier) {
+        if (identifier.getType().equals(Identifier.GROUP_TYPE)) {
+            return this.plugin.getGroupManager().getIfLoaded(identifier.getName());
+        }
+
+        return this.plugin.getUserManager().getIfLoaded(UUID.fromString(identifier.getName()));
+    }
+}
@@ -56,6 +56,7 @@ public enum CommandSpec {
 
     SYNC("Reloads all data from the plugins storage into memory, and applies any changes that are detected.", "/%s sync"),
     INFO("Prints general information about the active plugin instance.", "/%s info"),
+    HEAP("Reports how much memory is used by loaded permissions data", "/%s heap"),
     EDITOR("Creates a new web editor session", "/%s editor [type]",
             Argument.list(
                     Argument.create("type", false, "the types to load into the editor. ('all', 'users' or 'groups')"),
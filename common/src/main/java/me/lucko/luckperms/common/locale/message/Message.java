@@ -228,6 +228,9 @@ public enum Message {
     INFO_EXTENSIONS("&f-  &bExtensions:", true),
     INFO_EXTENSION_ENTRY("     &3{}", true),
 
+    INFO_SYNC_TASKS("&f-  &bServer Thread Tasks:", true),
+    INFO_SYNC_TASKS_META("     &3{}: {}", true),
+
     INFO_MIDDLE(
             "{PREFIX}&f-  &bMessaging: &f{}" + "\n" +
             "{PREFIX}&f-  &bInstance:" + "\n" +
@@ -238,6 +241,25 @@ public enum Message {
             false
     ),
 
+    INFO_PERMISSION_LOOKUP_CACHE(
+            "{PREFIX}&f-  &bPermission Lookup Cache:" + "\n" +
+            "{PREFIX}     &3Maximum size: &a{} &7per calculator" + "\n" +
+            "{PREFIX}     &3Requests: &a{} &7hits, &a{} &7misses &7(&a{}%&7 hit rate)" + "\n" +
+            "{PREFIX}     &3Evictions: &a{}",
+            false
+    ),
+
+    HEAP_START("&bCounting loaded data...", true),
+    HEAP_REPORT(
+            "{PREFIX}&f-  &bLoaded Data:" + "\n" +
+            "{PREFIX}     &3Holders: &a{} &7users, &a{} &7groups" + "\n" +
+            "{PREFIX}     &3Nodes: &a{} &7(&a{}&7 distinct keys)" + "\n" +
+            "{PREFIX}     &3Shared instances: &a{} &7key strings, &a{} &7context sets" + "\n" +
+            "{PREFIX}&f-  &bHeap:" + "\n" +
+            "{PREFIX}     &3Used: &a{} &7of &a{} &7allocated &7(&a{}&7 max)",
+            false
+    ),
+
     DEBUG_START("&bGenerating debugging output...", true),
     DEBUG_URL("&aDebug data URL:", true),
 
@@ -26,6 +26,8 @@
 package me.lucko.luckperms.common.messaging;
 
 import me.lucko.luckperms.common.cache.BufferedRequest;
+import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.model.Track;
 import me.lucko.luckperms.common.model.User;
 
 import net.luckperms.api.actionlog.Action;
@@ -70,6 +72,20 @@ public interface InternalMessagingService {
      */
     void pushUserUpdate(User user);
 
+    /**
+     * Pushes an update for a specific group.
+     *
+     * @param group the group
+     */
+    void pushGroupUpdate(Group group);
+
+    /**
+     * Pushes an update for a specific track.
+     *
+     * @param track the track
+     */
+    void pushTrackUpdate(Track track);
+
     /**
      * Pushes a log entry to connected servers.
      *
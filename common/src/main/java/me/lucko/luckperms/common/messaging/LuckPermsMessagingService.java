@@ -32,8 +32,12 @@ import me.lucko.luckperms.common.actionlog.LoggedAction;
 import me.lucko.luckperms.common.cache.BufferedRequest;
 import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.messaging.message.ActionLogMessageImpl;
+import me.lucko.luckperms.common.messaging.message.GroupUpdateMessageImpl;
+import me.lucko.luckperms.common.messaging.message.TrackUpdateMessageImpl;
 import me.lucko.luckperms.common.messaging.message.UpdateMessageImpl;
 import me.lucko.luckperms.common.messaging.message.UserUpdateMessageImpl;
+import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.model.Track;
 import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.util.gson.GsonProvider;
@@ -45,6 +49,8 @@ import net.luckperms.api.messenger.Messenger;
 import net.luckperms.api.messenger.MessengerProvider;
 import net.luckperms.api.messenger.message.Message;
 import net.luckperms.api.messenger.message.type.ActionLogMessage;
+import net.luckperms.api.messenger.message.type.GroupUpdateMessage;
+import net.luckperms.api.messenger.message.type.TrackUpdateMessage;
 import net.luckperms.api.messenger.message.type.UpdateMessage;
 import net.luckperms.api.messenger.message.type.UserUpdateMessage;
 
@@ -59,6 +65,7 @@ import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
 public class LuckPermsMessagingService implements InternalMessagingService, IncomingMessageConsumer {
+
     private final LuckPermsPlugin plugin;
     private final Set<UUID> receivedMessages;
     private final PushUpdateBuffer updateBuffer;
@@ -126,6 +133,24 @@ public class LuckPermsMessagingService implements InternalMessagingService, Inco
         });
     }
 
+    @Override
+    public void pushGroupUpdate(Group group) {
+        this.plugin.getBootstrap().getScheduler().executeAsync(() -> {
+            UUID requestId = generatePingId();
+            this.plugin.getLogger().info("[Messaging] Sending group ping for '" + group.getName() + "' with id: " + requestId);
+            this.messenger.sendOutgoingMessage(new GroupUpdateMessageImpl(requestId, group.getName()));
+        });
+    }
+
+    @Override
+    public void pushTrackUpdate(Track track) {
+        this.plugin.getBootstrap().getScheduler().executeAsync(() -> {
+            UUID requestId = generatePingId();
+            this.plugin.getLogger().info("[Messaging] Sending track ping for '" + track.getName() + "' with id: " + requestId);
+            this.messenger.sendOutgoingMessage(new TrackUpdateMessageImpl(requestId, track.getName()));
+        });
+    }
+
     @Override
     public void pushLog(Action logEntry) {
         this.plugin.getBootstrap().getScheduler().executeAsync(() -> {
@@ -151,6 +176,8 @@ public class LuckPermsMessagingService implements InternalMessagingService, Inco
         // determine if the message can be handled by us
         boolean valid = message instanceof UpdateMessage ||
                 message instanceof UserUpdateMessage ||
+                message instanceof GroupUpdateMessage ||
+                message instanceof TrackUpdateMessage ||
                 message instanceof ActionLogMessage;
 
         // instead of throwing an exception here, just return false
@@ -200,6 +227,12 @@ public class LuckPermsMessagingService implements InternalMessagingService, Inco
             case UserUpdateMessageImpl.TYPE:
                 decoded = UserUpdateMessageImpl.decode(content, id);
                 break;
+            case GroupUpdateMessageImpl.TYPE:
+                decoded = GroupUpdateMessageImpl.decode(content, id);
+                break;
+            case TrackUpdateMessageImpl.TYPE:
+                decoded = TrackUpdateMessageImpl.decode(content, id);
+                break;
             case ActionLogMessageImpl.TYPE:
                 decoded = ActionLogMessageImpl.decode(content, id);
                 break;
@@ -253,6 +286,39 @@ public class LuckPermsMessagingService implements InternalMessagingService, Inco
             }
 
             this.plugin.getStorage().loadUser(user.getUniqueId(), null);
+        } else if (message instanceof GroupUpdateMessage) {
+            GroupUpdateMessage msg = (GroupUpdateMessage) message;
+            String groupName = msg.getGroupName();
+
+            this.plugin.getLogger().info("[Messaging] Received group update ping for '" + groupName + "' with id: " + msg.getId());
+
+            if (this.plugin.getEventDispatcher().dispatchNetworkPreSync(false, msg.getId())) {
+                return;
+            }
+
+            this.plugin.getStorage().loadGroup(groupName).thenAccept(result -> {
+                if (!result.isPresent()) {
+                    this.plugin.getGroupManager().unload(groupName);
+                }
+                this.plugin.getInheritanceIndex().invalidateInheritors(Collections.singleton(groupName));
+            });
+        } else if (message instanceof TrackUpdateMessage) {
+            TrackUpdateMessage msg = (TrackUpdateMessage) message;
+            String trackName = msg.getTrackName();
+
+            this.plugin.getLogger().info("[Messaging] Received track update ping for '" + trackName + "' with id: " + msg.getId());
+
+            if (this.plugin.getEventDispatcher().dispatchNetworkPreSync(false, msg.getId())) {
+                return;
+            }
+
+            this.plugin.getStorage().loadTrack(trackName).thenAccept(result -> {
+                if (!result.isPresent()) {
+                    this.plugin.getTrackManager().unload(trackName);
+                }
+                this.plugin.getGroupManager().invalidateAllGroupCaches();
+                this.plugin.getUserManager().invalidateAllUserCaches();
+            });
         } else if (message instanceof ActionLogMessage) {
             ActionLogMessage msg = (ActionLogMessage) message;
 
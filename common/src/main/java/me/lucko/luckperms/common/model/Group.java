@@ -28,8 +28,10 @@ package me.lucko.luckperms.common.model;
 import me.lucko.luckperms.common.api.implementation.ApiGroup;
 import me.lucko.luckperms.common.cache.Cache;
 import me.lucko.luckperms.common.cacheddata.GroupCachedDataManager;
+import me.lucko.luckperms.common.cacheddata.PermissionSnapshot;
 import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.util.CaffeineFactory;
 
 import net.luckperms.api.node.Node;
 import net.luckperms.api.node.types.DisplayNameNode;
@@ -39,6 +41,7 @@ import org.checkerframework.checker.nullness.qual.NonNull;
 
 import java.util.Optional;
 import java.util.OptionalInt;
+import java.util.concurrent.TimeUnit;
 
 public class Group extends PermissionHolder {
     private final ApiGroup apiProxy = new ApiGroup(this);
@@ -63,6 +66,17 @@ public class Group extends PermissionHolder {
      */
     private final GroupCachedDataManager cachedData;
 
+    /**
+     * Caches flattened snapshots of the groups inherited permissions.
+     *
+     * <p>Bounded, and released when idle, as contexts which vary per player
+     * can produce a large number of distinct query options.</p>
+     */
+    private final com.github.benmanes.caffeine.cache.Cache<QueryOptions, PermissionSnapshot> permissionSnapshots = CaffeineFactory.newBuilder()
+            .maximumSize(256)
+            .expireAfterAccess(2, TimeUnit.MINUTES)
+            .build();
+
     public Group(String name, LuckPermsPlugin plugin) {
         super(plugin);
         this.name = name.toLowerCase();
@@ -73,6 +87,10 @@ public class Group extends PermissionHolder {
 
     @Override
     protected void invalidateCache() {
+        // mark the snapshots of this group (and any groups inheriting from it) as stale
+        getPlugin().getGroupManager().incrementGroupDataVersion();
+        invalidatePermissionSnapshots();
+
         super.invalidateCache();
 
         // invalidate our caches
@@ -80,6 +98,42 @@ public class Group extends PermissionHolder {
         this.displayNameCache.invalidate();
     }
 
+    /**
+     * Gets a flattened snapshot of the permissions this group resolves
+     * in the given query options.
+     *
+     * <p>The snapshot is cached until the group data version changes.</p>
+     *
+     * @param queryOptions the query options
+     * @return the snapshot
+     */
+    public PermissionSnapshot getPermissionSnapshot(QueryOptions queryOptions) {
+        long version = getPlugin().getGroupManager().getGroupDataVersion();
+
+        PermissionSnapshot snapshot = this.permissionSnapshots.getIfPresent(queryOptions);
+        if (snapshot != null && snapshot.getVersion() == version) {
+            return snapshot;
+        }
+
+        snapshot = PermissionSnapshot.create(this, queryOptions, version, getPlugin().getConfiguration().get(ConfigKeys.APPLYING_SHORTHAND));
+        this.permissionSnapshots.put(queryOptions, snapshot);
+        return snapshot;
+    }
+
+    public void invalidatePermissionSnapshots() {
+        this.permissionSnapshots.invalidateAll();
+    }
+
+    /**
+     * Removes snapshots which were created at an old group data version,
+     * or which have expired.
+     */
+    public void cleanupPermissionSnapshots() {
+        long version = getPlugin().getGroupManager().getGroupDataVersion();
+        this.permissionSnapshots.asMap().values().removeIf(snapshot -> snapshot.getVersion() != version);
+        this.permissionSnapshots.cleanUp();
+    }
+
     // name getters
     public String getName() {
         return this.name;
@@ -25,6 +25,7 @@
 
 package me.lucko.luckperms.common.model;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 
 import me.lucko.luckperms.common.config.ConfigKeys;
@@ -58,6 +59,7 @@ import java.util.Set;
 import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.function.Consumer;
@@ -99,6 +101,23 @@ public final class NodeMap {
      */
     private final SortedMap<ImmutableContextSet, SortedSet<InheritanceNode>> inheritanceMap = new ConcurrentSkipListMap<>(ContextSetComparator.reverse());
 
+    /**
+     * Memoizes which of the value sets in {@link #map} and {@link #inheritanceMap} should be
+     * included for a given {@link QueryOptions}.
+     *
+     * <p>The result only depends on the keys of the maps, so the index is discarded whenever a
+     * key is added or removed, but not when nodes are added to or removed from an existing key.</p>
+     */
+    private volatile BucketIndex bucketIndex = null;
+
+    /**
+     * The origin metadata attached to nodes in this map.
+     *
+     * <p>A single instance is shared by all of the nodes, so their metadata maps are equal
+     * and can be {@link me.lucko.luckperms.common.node.NodeInterner interned}.</p>
+     */
+    private InheritanceOrigin origin = null;
+
     NodeMap(PermissionHolder holder) {
         this.holder = holder;
     }
@@ -203,22 +222,8 @@ public final class NodeMap {
     }
 
     public void forEach(QueryOptions filter, Consumer<? super Node> consumer) {
-        for (Map.Entry<ImmutableContextSet, SortedSet<Node>> e : this.map.entrySet()) {
-            if (!filter.satisfies(e.getKey(), defaultSatisfyMode())) {
-                continue;
-            }
-
-            if (normalNodesExcludeTest(filter, e.getKey())) {
-                if (inheritanceNodesIncludeTest(filter, e.getKey())) {
-                    // only copy inheritance nodes.
-                    SortedSet<InheritanceNode> inheritanceNodes = this.inheritanceMap.get(e.getKey());
-                    if (inheritanceNodes != null) {
-                        inheritanceNodes.forEach(consumer);
-                    }
-                }
-            } else {
-                e.getValue().forEach(consumer);
-            }
+        for (SortedSet<? extends Node> values : buckets(filter).nodes) {
+            values.forEach(consumer);
         }
     }
 
@@ -229,69 +234,96 @@ public final class NodeMap {
     }
 
     public void copyTo(Collection<? super Node> collection, QueryOptions filter) {
-        for (Map.Entry<ImmutableContextSet, SortedSet<Node>> e : this.map.entrySet()) {
-            if (!filter.satisfies(e.getKey(), defaultSatisfyMode())) {
-                continue;
-            }
+        for (SortedSet<? extends Node> values : buckets(filter).nodes) {
+            collection.addAll(values);
+        }
+    }
 
-            if (normalNodesExcludeTest(filter, e.getKey())) {
-                if (inheritanceNodesIncludeTest(filter, e.getKey())) {
-                    // only copy inheritance nodes.
-                    SortedSet<InheritanceNode> inheritanceNodes = this.inheritanceMap.get(e.getKey());
-                    if (inheritanceNodes != null) {
-                        collection.addAll(inheritanceNodes);
-                    }
+    public <T extends Node> void copyTo(Collection<? super T> collection, NodeType<T> type, QueryOptions filter) {
+        // inheritance-only buckets can be skipped entirely unless inheritance nodes were requested
+        Buckets buckets = buckets(filter);
+        List<SortedSet<? extends Node>> sets = type == NodeType.INHERITANCE ? buckets.nodes : buckets.nodesExcludingInheritanceOnly;
+        for (SortedSet<? extends Node> values : sets) {
+            for (Node node : values) {
+                if (type.matches(node)) {
+                    collection.add(type.cast(node));
                 }
-            } else {
-                collection.addAll(e.getValue());
             }
         }
     }
 
-    public <T extends Node> void copyTo(Collection<? super T> collection, NodeType<T> type, QueryOptions filter) {
+    public void copyInheritanceNodesTo(Collection<? super InheritanceNode> collection) {
+        for (SortedSet<InheritanceNode> values : this.inheritanceMap.values()) {
+            collection.addAll(values);
+        }
+    }
+
+    public void copyInheritanceNodesTo(Collection<? super InheritanceNode> collection, QueryOptions filter) {
+        for (SortedSet<InheritanceNode> values : buckets(filter).inheritanceNodes) {
+            collection.addAll(values);
+        }
+    }
+
+    private Buckets buckets(QueryOptions filter) {
+        ContextSatisfyMode satisfyMode = defaultSatisfyMode();
+
+        // the index must be published before the maps are read, so that a concurrent
+        // change to the keys will always discard what we are about to compute
+        BucketIndex index = this.bucketIndex;
+        if (index == null || index.satisfyMode != satisfyMode) {
+            index = new BucketIndex(satisfyMode);
+            this.bucketIndex = index;
+        }
+
+        Buckets buckets = index.buckets.get(filter);
+        if (buckets == null) {
+            buckets = calculateBuckets(filter, satisfyMode);
+            if (index.buckets.size() >= BucketIndex.MAX_SIZE) {
+                index.buckets.clear();
+            }
+            index.buckets.put(filter, buckets);
+        }
+        return buckets;
+    }
+
+    private Buckets calculateBuckets(QueryOptions filter, ContextSatisfyMode satisfyMode) {
+        ImmutableList.Builder<SortedSet<? extends Node>> nodes = ImmutableList.builder();
+        ImmutableList.Builder<SortedSet<? extends Node>> nodesExcludingInheritanceOnly = ImmutableList.builder();
         for (Map.Entry<ImmutableContextSet, SortedSet<Node>> e : this.map.entrySet()) {
-            if (!filter.satisfies(e.getKey(), defaultSatisfyMode())) {
+            if (!filter.satisfies(e.getKey(), satisfyMode)) {
                 continue;
             }
 
             if (normalNodesExcludeTest(filter, e.getKey())) {
                 if (inheritanceNodesIncludeTest(filter, e.getKey())) {
                     // only copy inheritance nodes.
-                    if (type == NodeType.INHERITANCE) {
-                        SortedSet<InheritanceNode> inheritanceNodes = this.inheritanceMap.get(e.getKey());
-                        if (inheritanceNodes != null) {
-                            for (InheritanceNode node : inheritanceNodes) {
-                                collection.add(type.cast(node));
-                            }
-                        }
+                    SortedSet<InheritanceNode> inheritanceNodes = this.inheritanceMap.get(e.getKey());
+                    if (inheritanceNodes != null) {
+                        nodes.add(inheritanceNodes);
                     }
                 }
             } else {
-                for (Node node : e.getValue()) {
-                    if (type.matches(node)) {
-                        collection.add(type.cast(node));
-                    }
-                }
+                nodes.add(e.getValue());
+                nodesExcludingInheritanceOnly.add(e.getValue());
             }
         }
-    }
 
-    public void copyInheritanceNodesTo(Collection<? super InheritanceNode> collection) {
-        for (SortedSet<InheritanceNode> values : this.inheritanceMap.values()) {
-            collection.addAll(values);
-        }
-    }
-
-    public void copyInheritanceNodesTo(Collection<? super InheritanceNode> collection, QueryOptions filter) {
+        ImmutableList.Builder<SortedSet<InheritanceNode>> inheritanceNodes = ImmutableList.builder();
         for (Map.Entry<ImmutableContextSet, SortedSet<InheritanceNode>> e : this.inheritanceMap.entrySet()) {
-            if (!filter.satisfies(e.getKey(), defaultSatisfyMode())) {
+            if (!filter.satisfies(e.getKey(), satisfyMode)) {
                 continue;
             }
 
             if (inheritanceNodesIncludeTest(filter, e.getKey())) {
-                collection.addAll(e.getValue());
+                inheritanceNodes.add(e.getValue());
             }
         }
+
+        return new Buckets(nodes.build(), nodesExcludingInheritanceOnly.build(), inheritanceNodes.build());
+    }
+
+    private void invalidateBuckets() {
+        this.bucketIndex = null;
     }
 
     public Collection<Node> nodesInContext(ContextSet context) {
@@ -316,19 +348,35 @@ public final class NodeMap {
             return node;
         }
 
-        return node.toBuilder().withMetadata(InheritanceOriginMetadata.KEY, new InheritanceOrigin(this.holder.getIdentifier())).build();
+        return node.toBuilder().withMetadata(InheritanceOriginMetadata.KEY, origin()).build();
+    }
+
+    private InheritanceOrigin origin() {
+        InheritanceOrigin origin = this.origin;
+        if (origin == null) {
+            this.origin = origin = new InheritanceOrigin(this.holder.getIdentifier());
+        }
+        return origin;
     }
 
     void add(Node node) {
         ImmutableContextSet context = node.getContexts();
         Node n = localise(node);
 
-        SortedSet<Node> nodesInContext = this.map.computeIfAbsent(context, VALUE_SET_SUPPLIER);
+        SortedSet<Node> nodesInContext = this.map.get(context);
+        if (nodesInContext == null) {
+            nodesInContext = this.map.computeIfAbsent(context, VALUE_SET_SUPPLIER);
+            invalidateBuckets();
+        }
         nodesInContext.removeIf(e -> e.equals(node, NodeEqualityPredicate.IGNORE_EXPIRY_TIME_AND_VALUE));
         nodesInContext.add(n);
 
         if (n instanceof InheritanceNode) {
-            SortedSet<InheritanceNode> inheritanceNodesInContext = this.inheritanceMap.computeIfAbsent(context, INHERITANCE_VALUE_SET_SUPPLIER);
+            SortedSet<InheritanceNode> inheritanceNodesInContext = this.inheritanceMap.get(context);
+            if (inheritanceNodesInContext == null) {
+                inheritanceNodesInContext = this.inheritanceMap.computeIfAbsent(context, INHERITANCE_VALUE_SET_SUPPLIER);
+                invalidateBuckets();
+            }
             inheritanceNodesInContext.removeIf(e -> e.equals(node, NodeEqualityPredicate.IGNORE_EXPIRY_TIME_AND_VALUE));
             if (n.getValue()) {
                 inheritanceNodesInContext.add((InheritanceNode) n);
@@ -374,23 +422,23 @@ public final class NodeMap {
     void clear() {
         this.map.clear();
         this.inheritanceMap.clear();
+        invalidateBuckets();
     }
 
     void clear(ContextSet contextSet) {
         ImmutableContextSet context = contextSet.immutableCopy();
         this.map.remove(context);
         this.inheritanceMap.remove(context);
+        invalidateBuckets();
     }
 
     void setContent(Iterable<? extends Node> set) {
-        this.map.clear();
-        this.inheritanceMap.clear();
+        clear();
         mergeContent(set);
     }
 
     void setContent(Stream<? extends Node> stream) {
-        this.map.clear();
-        this.inheritanceMap.clear();
+        clear();
         mergeContent(stream);
     }
 
@@ -464,4 +512,31 @@ public final class NodeMap {
         return work;
     }
 
+    private static final class BucketIndex {
+        // the maximum number of query options to remember buckets for
+        private static final int MAX_SIZE = 64;
+
+        private final ContextSatisfyMode satisfyMode;
+        private final Map<QueryOptions, Buckets> buckets = new ConcurrentHashMap<>();
+
+        BucketIndex(ContextSatisfyMode satisfyMode) {
+            this.satisfyMode = satisfyMode;
+        }
+    }
+
+    private static final class Buckets {
+        // the value sets to include from either map, in iteration order
+        private final List<SortedSet<? extends Node>> nodes;
+        // as above, but without sets which are only included for their inheritance nodes
+        private final List<SortedSet<? extends Node>> nodesExcludingInheritanceOnly;
+        // the value sets to include from the inheritance map
+        private final List<SortedSet<InheritanceNode>> inheritanceNodes;
+
+        Buckets(List<SortedSet<? extends Node>> nodes, List<SortedSet<? extends Node>> nodesExcludingInheritanceOnly, List<SortedSet<InheritanceNode>> inheritanceNodes) {
+            this.nodes = nodes;
+            this.nodesExcludingInheritanceOnly = nodesExcludingInheritanceOnly;
+            this.inheritanceNodes = inheritanceNodes;
+        }
+    }
+
 }
@@ -29,7 +29,10 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 
 import me.lucko.luckperms.common.cacheddata.HolderCachedDataManager;
+import me.lucko.luckperms.common.cacheddata.PermissionSnapshot;
 import me.lucko.luckperms.common.cacheddata.type.MetaAccumulator;
+import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.graph.TraversalAlgorithm;
 import me.lucko.luckperms.common.inheritance.InheritanceComparator;
 import me.lucko.luckperms.common.inheritance.InheritanceGraph;
 import me.lucko.luckperms.common.node.NodeEquality;
@@ -58,6 +61,7 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -65,6 +69,7 @@ import java.util.OptionalInt;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Predicate;
@@ -130,6 +135,12 @@ public abstract class PermissionHolder {
      */
     private final Lock ioLock = new ReentrantLock();
 
+    /**
+     * Incremented whenever the holders nodes change
+     * @see #getDataVersion()
+     */
+    private final AtomicLong dataVersion = new AtomicLong();
+
     /**
      * Comparator used to ordering groups when calculating inheritance
      */
@@ -154,6 +165,15 @@ public abstract class PermissionHolder {
         return this.ioLock;
     }
 
+    /**
+     * Gets a version number which changes whenever the holders nodes change.
+     *
+     * @return the data version
+     */
+    public long getDataVersion() {
+        return this.dataVersion.get();
+    }
+
     public Comparator<? super PermissionHolder> getInheritanceComparator() {
         return this.inheritanceComparator;
     }
@@ -231,6 +251,8 @@ public abstract class PermissionHolder {
     public abstract HolderType getType();
 
     protected void invalidateCache() {
+        this.dataVersion.incrementAndGet();
+        this.plugin.getInheritanceIndex().update(this);
         getCachedData().invalidate();
         getPlugin().getEventDispatcher().dispatchDataRecalculate(this);
     }
@@ -240,6 +262,26 @@ public abstract class PermissionHolder {
         invalidateCache();
     }
 
+    public void setNodes(DataType type, Iterable<? extends Node> set, boolean callEvent) {
+        // only capture the before and after states if they'll be used
+        if (!callEvent || !this.plugin.getEventDispatcher().shouldPostNodeMutateBatch()) {
+            setNodes(type, set);
+            return;
+        }
+
+        NodeMap data = getData(type);
+
+        ImmutableSet<Node> before = data.asImmutableSet();
+        data.setContent(set);
+        ImmutableSet<Node> after = data.asImmutableSet();
+
+        if (!before.equals(after)) {
+            this.plugin.getEventDispatcher().dispatchNodeMutateBatch(this, type, before, after);
+        }
+
+        invalidateCache();
+    }
+
     public void setNodes(DataType type, Stream<? extends Node> stream) {
         getData(type).setContent(stream);
         invalidateCache();
@@ -250,6 +292,26 @@ public abstract class PermissionHolder {
         invalidateCache();
     }
 
+    public void mergeNodes(DataType type, Iterable<? extends Node> set, boolean callEvent) {
+        // only capture the before and after states if they'll be used
+        if (!callEvent || !this.plugin.getEventDispatcher().shouldPostNodeMutateBatch()) {
+            mergeNodes(type, set);
+            return;
+        }
+
+        NodeMap data = getData(type);
+
+        ImmutableSet<Node> before = data.asImmutableSet();
+        data.mergeContent(set);
+        ImmutableSet<Node> after = data.asImmutableSet();
+
+        if (!before.equals(after)) {
+            this.plugin.getEventDispatcher().dispatchNodeMutateBatch(this, type, before, after);
+        }
+
+        invalidateCache();
+    }
+
     private DataType[] queryOrder(QueryOptions queryOptions) {
         return DataSelector.select(queryOptions, getIdentifier());
     }
@@ -362,6 +424,62 @@ public abstract class PermissionHolder {
         processExportedPermissions(accumulator, entries, convertToLowercase, resolveShorthand);
     }
 
+    /**
+     * Exports permissions in the same way as {@link #exportPermissions(Map, QueryOptions, boolean, boolean)}
+     * (with keys converted to lowercase), but reuses the {@link PermissionSnapshot}s of parent
+     * groups instead of walking the whole inheritance graph.
+     *
+     * <p>Merging the snapshots of each direct parent (in order) is equivalent to a depth-first
+     * traversal, as any group reached through an earlier parent has already contributed all of
+     * its permissions. If a breadth-first traversal or post-traversal sort is configured, this
+     * method falls back to a full graph walk.</p>
+     *
+     * @param accumulator the accumulator to add resolved permissions to
+     * @param queryOptions the query options
+     * @param resolveShorthand if shorthand permissions should be resolved
+     */
+    public void exportPermissionsFromSnapshots(Map<String, Boolean> accumulator, QueryOptions queryOptions, boolean resolveShorthand) {
+        TraversalAlgorithm algorithm = this.plugin.getConfiguration().get(ConfigKeys.INHERITANCE_TRAVERSAL_ALGORITHM);
+        boolean postTraversalSort = this.plugin.getConfiguration().get(ConfigKeys.POST_TRAVERSAL_INHERITANCE_SORT);
+
+        if (!queryOptions.flag(Flag.RESOLVE_INHERITANCE) || algorithm == TraversalAlgorithm.BREADTH_FIRST || postTraversalSort) {
+            exportPermissions(accumulator, queryOptions, true, resolveShorthand);
+            return;
+        }
+
+        Map<String, Boolean> shorthand = resolveShorthand ? new HashMap<>() : null;
+
+        if (this instanceof Group) {
+            ((Group) this).getPermissionSnapshot(queryOptions).mergeInto(accumulator, shorthand);
+        } else {
+            boolean postOrder = algorithm == TraversalAlgorithm.DEPTH_FIRST_POST_ORDER;
+            if (!postOrder) {
+                accumulateOwnPermissions(accumulator, shorthand, queryOptions);
+            }
+
+            InheritanceGraph graph = this.plugin.getInheritanceGraphFactory().getGraph(queryOptions);
+            for (PermissionHolder parent : graph.successors(this)) {
+                ((Group) parent).getPermissionSnapshot(queryOptions).mergeInto(accumulator, shorthand);
+            }
+
+            if (postOrder) {
+                accumulateOwnPermissions(accumulator, shorthand, queryOptions);
+            }
+        }
+
+        if (shorthand != null) {
+            for (Map.Entry<String, Boolean> e : shorthand.entrySet()) {
+                accumulator.putIfAbsent(e.getKey(), e.getValue());
+            }
+        }
+    }
+
+    private void accumulateOwnPermissions(Map<String, Boolean> accumulator, Map<String, Boolean> shorthand, QueryOptions queryOptions) {
+        for (DataType dataType : queryOrder(queryOptions)) {
+            getData(dataType).forEach(queryOptions, node -> PermissionSnapshot.accumulate(node, accumulator, shorthand));
+        }
+    }
+
     private static void processExportedPermissions(Map<String, Boolean> accumulator, List<Node> entries, boolean convertToLowercase, boolean resolveShorthand) {
         for (Node node : entries) {
             if (convertToLowercase) {
@@ -29,8 +29,31 @@ import me.lucko.luckperms.common.model.Group;
 import me.lucko.luckperms.common.model.manager.AbstractManager;
 
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 
 public abstract class AbstractGroupManager<T extends Group> extends AbstractManager<String, Group, T> implements GroupManager<T> {
+    private final AtomicLong groupDataVersion = new AtomicLong();
+
+    @Override
+    public T getOrMake(String id) {
+        if (isLoaded(id)) {
+            return super.getOrMake(id);
+        }
+
+        T group = super.getOrMake(id);
+        incrementGroupDataVersion();
+        return group;
+    }
+
+    @Override
+    public void unload(String id) {
+        T group = id == null ? null : getIfLoaded(id);
+        super.unload(id);
+        if (group != null) {
+            group.getPlugin().getInheritanceIndex().remove(group);
+        }
+        incrementGroupDataVersion();
+    }
 
     @Override
     public T getByDisplayName(String name) {
@@ -66,11 +89,25 @@ public abstract class AbstractGroupManager<T extends Group> extends AbstractMana
 
     @Override
     public void invalidateAllGroupCaches() {
-        getAll().values().forEach(g -> g.getCachedData().invalidate());
+        incrementGroupDataVersion();
+        getAll().values().forEach(g -> {
+            g.invalidatePermissionSnapshots();
+            g.getCachedData().invalidate();
+        });
     }
 
     @Override
     public void invalidateAllPermissionCalculators() {
         getAll().values().forEach(g -> g.getCachedData().invalidatePermissionCalculators());
     }
+
+    @Override
+    public long getGroupDataVersion() {
+        return this.groupDataVersion.get();
+    }
+
+    @Override
+    public void incrementGroupDataVersion() {
+        this.groupDataVersion.incrementAndGet();
+    }
 }
\ No newline at end of file
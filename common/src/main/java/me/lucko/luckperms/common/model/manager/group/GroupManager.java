@@ -54,4 +54,21 @@ public interface GroupManager<T extends Group> extends Manager<String, Group, T>
      */
     void invalidateAllPermissionCalculators();
 
+    /**
+     * Gets the current version of the loaded group data.
+     *
+     * <p>The version changes whenever a loaded group is modified, or when a
+     * group is loaded or unloaded. It is used to detect stale
+     * {@link me.lucko.luckperms.common.cacheddata.PermissionSnapshot}s.</p>
+     *
+     * @return the group data version
+     */
+    long getGroupDataVersion();
+
+    /**
+     * Increments the group data version, marking all existing permission
+     * snapshots as stale.
+     */
+    void incrementGroupDataVersion();
+
 }
@@ -67,6 +67,15 @@ public abstract class AbstractUserManager<T extends User> extends AbstractManage
         return user;
     }
 
+    @Override
+    public void unload(UUID id) {
+        T user = id == null ? null : getIfLoaded(id);
+        super.unload(id);
+        if (user != null) {
+            this.plugin.getInheritanceIndex().remove(user);
+        }
+    }
+
     @Override
     public T getByUsername(String name) {
         for (T user : getAll().values()) {
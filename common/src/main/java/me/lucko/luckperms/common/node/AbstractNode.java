@@ -26,9 +26,6 @@
 package me.lucko.luckperms.common.node;
 
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableMap;
-
-import me.lucko.luckperms.common.node.utils.ShorthandParser;
 
 import net.luckperms.api.context.ImmutableContextSet;
 import net.luckperms.api.node.Node;
@@ -71,13 +68,13 @@ public abstract class AbstractNode<N extends ScopedNode<N, B>, B extends NodeBui
     private final int hashCode;
 
     protected AbstractNode(String key, boolean value, long expireAt, ImmutableContextSet contexts, Map<NodeMetadataKey<?>, Object> metadata) {
-        this.key = key;
+        this.key = NodeInterner.intern(key);
         this.value = value;
         this.expireAt = expireAt;
         this.contexts = contexts;
-        this.metadata = ImmutableMap.copyOf(metadata);
+        this.metadata = NodeInterner.intern(metadata);
 
-        this.resolvedShorthand = this instanceof PermissionNode ? ImmutableList.copyOf(ShorthandParser.expandShorthand(this.key)) : ImmutableList.of();
+        this.resolvedShorthand = this instanceof PermissionNode ? NodeInterner.resolveShorthand(this.key) : ImmutableList.of();
 
         this.hashCode = calculateHashCode();
     }
@@ -0,0 +1,102 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.node;
+
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+import me.lucko.luckperms.common.node.utils.ShorthandParser;
+import me.lucko.luckperms.common.util.CaffeineFactory;
+
+import net.luckperms.api.node.metadata.NodeMetadataKey;
+
+import java.util.Map;
+
+/**
+ * Pools the components of {@link AbstractNode}s, so that nodes which are
+ * duplicated across many holders share the same underlying objects.
+ *
+ * <p>For example, the same {@code group.default} inheritance node will be held by
+ * almost every loaded user. The node instances themselves can't be shared between
+ * holders (they carry holder specific metadata), but their key strings, context
+ * sets and resolved shorthand can be. Metadata maps are only shared between the
+ * nodes of a single holder, as the inheritance origin they contain is specific
+ * to each holder.</p>
+ */
+public final class NodeInterner {
+    private NodeInterner() {}
+
+    private static final Interner<String> STRINGS = Interners.newWeakInterner();
+    private static final Interner<ImmutableMap<NodeMetadataKey<?>, Object>> METADATA = Interners.newWeakInterner();
+
+    // only keys containing a shorthand group are cached - the expansion always contains the key
+    // itself, so the keys are held strongly and the cache is bounded instead
+    private static final LoadingCache<String, ImmutableList<String>> RESOLVED_SHORTHAND = CaffeineFactory.newBuilder()
+            .maximumSize(1000)
+            .build(key -> ImmutableList.copyOf(ShorthandParser.expandShorthand(key)));
+
+    /**
+     * Gets the canonical instance of a string used by a node.
+     *
+     * @param string the string
+     * @return the canonical instance
+     */
+    public static String intern(String string) {
+        return STRINGS.intern(string);
+    }
+
+    /**
+     * Gets a canonical immutable copy of a node metadata map.
+     *
+     * @param metadata the metadata
+     * @return the canonical copy
+     */
+    public static ImmutableMap<NodeMetadataKey<?>, Object> intern(Map<NodeMetadataKey<?>, Object> metadata) {
+        ImmutableMap<NodeMetadataKey<?>, Object> map = ImmutableMap.copyOf(metadata);
+        if (map.isEmpty()) {
+            return map;
+        }
+        return METADATA.intern(map);
+    }
+
+    /**
+     * Gets the shared list of permissions a node key expands to when shorthand is applied.
+     *
+     * @param key the node key
+     * @return the resolved shorthand
+     */
+    public static ImmutableList<String> resolveShorthand(String key) {
+        // keys without a group can only expand to themselves
+        if (key.indexOf('{') == -1 && key.indexOf('(') == -1) {
+            return ImmutableList.of(key);
+        }
+        return RESOLVED_SHORTHAND.get(key);
+    }
+
+}
@@ -27,6 +27,7 @@ package me.lucko.luckperms.common.node.types;
 
 import me.lucko.luckperms.common.node.AbstractNode;
 import me.lucko.luckperms.common.node.AbstractNodeBuilder;
+import me.lucko.luckperms.common.node.NodeInterner;
 
 import net.luckperms.api.context.ImmutableContextSet;
 import net.luckperms.api.model.group.Group;
@@ -59,7 +60,7 @@ public class Inheritance extends AbstractNode<InheritanceNode, InheritanceNode.B
 
     public Inheritance(String groupName, boolean value, long expireAt, ImmutableContextSet contexts, Map<NodeMetadataKey<?>, Object> metadata) {
         super(key(groupName), value, expireAt, contexts, metadata);
-        this.groupName = groupName;
+        this.groupName = NodeInterner.intern(groupName);
     }
 
     @Override
@@ -25,6 +25,9 @@
 
 package me.lucko.luckperms.common.plugin;
 
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+
 import me.lucko.luckperms.common.actionlog.LogDispatcher;
 import me.lucko.luckperms.common.api.ApiRegistrationUtil;
 import me.lucko.luckperms.common.api.LuckPermsApiProvider;
@@ -40,6 +43,7 @@ import me.lucko.luckperms.common.event.EventDispatcher;
 import me.lucko.luckperms.common.event.gen.GeneratedEventClass;
 import me.lucko.luckperms.common.extension.SimpleExtensionManager;
 import me.lucko.luckperms.common.inheritance.InheritanceGraphFactory;
+import me.lucko.luckperms.common.inheritance.InheritanceIndex;
 import me.lucko.luckperms.common.locale.LocaleManager;
 import me.lucko.luckperms.common.locale.message.Message;
 import me.lucko.luckperms.common.messaging.InternalMessagingService;
@@ -76,6 +80,7 @@ public abstract class AbstractLuckPermsPlugin implements LuckPermsPlugin {
     // init during enable
     private VerboseHandler verboseHandler;
     private PermissionRegistry permissionRegistry;
+    private StatsCounter permissionLookupCacheStats;
     private LogDispatcher logDispatcher;
     private LuckPermsConfiguration configuration;
     private LocaleManager localeManager;
@@ -85,6 +90,7 @@ public abstract class AbstractLuckPermsPlugin implements LuckPermsPlugin {
     private InternalMessagingService messagingService = null;
     private SyncTask.Buffer syncTaskBuffer;
     private InheritanceGraphFactory inheritanceGraphFactory;
+    private InheritanceIndex inheritanceIndex;
     private CalculatorFactory calculatorFactory;
     private LuckPermsApiProvider apiProvider;
     private EventDispatcher eventDispatcher;
@@ -109,6 +115,7 @@ public abstract class AbstractLuckPermsPlugin implements LuckPermsPlugin {
         // load some utilities early
         this.verboseHandler = new VerboseHandler(getBootstrap().getScheduler());
         this.permissionRegistry = new PermissionRegistry(getBootstrap().getScheduler());
+        this.permissionLookupCacheStats = new ConcurrentStatsCounter();
         this.logDispatcher = new LogDispatcher(this);
 
         // load configuration
@@ -160,6 +167,7 @@ public abstract class AbstractLuckPermsPlugin implements LuckPermsPlugin {
         // load internal managers
         getLogger().info("Loading internal permission managers...");
         this.inheritanceGraphFactory = new InheritanceGraphFactory(this);
+        this.inheritanceIndex = new InheritanceIndex(this);
 
         // setup user/group/track manager
         setupManagers();
@@ -305,6 +313,11 @@ public abstract class AbstractLuckPermsPlugin implements LuckPermsPlugin {
         return this.permissionRegistry;
     }
 
+    @Override
+    public StatsCounter getPermissionLookupCacheStats() {
+        return this.permissionLookupCacheStats;
+    }
+
     @Override
     public LogDispatcher getLogDispatcher() {
         return this.logDispatcher;
@@ -350,6 +363,11 @@ public abstract class AbstractLuckPermsPlugin implements LuckPermsPlugin {
         return this.inheritanceGraphFactory;
     }
 
+    @Override
+    public InheritanceIndex getInheritanceIndex() {
+        return this.inheritanceIndex;
+    }
+
     @Override
     public CalculatorFactory getCalculatorFactory() {
         return this.calculatorFactory;
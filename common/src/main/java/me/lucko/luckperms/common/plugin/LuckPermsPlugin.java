@@ -25,6 +25,8 @@
 
 package me.lucko.luckperms.common.plugin;
 
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+
 import me.lucko.luckperms.common.actionlog.LogDispatcher;
 import me.lucko.luckperms.common.api.LuckPermsApiProvider;
 import me.lucko.luckperms.common.calculator.CalculatorFactory;
@@ -36,6 +38,7 @@ import me.lucko.luckperms.common.dependencies.DependencyManager;
 import me.lucko.luckperms.common.event.EventDispatcher;
 import me.lucko.luckperms.common.extension.SimpleExtensionManager;
 import me.lucko.luckperms.common.inheritance.InheritanceGraphFactory;
+import me.lucko.luckperms.common.inheritance.InheritanceIndex;
 import me.lucko.luckperms.common.locale.LocaleManager;
 import me.lucko.luckperms.common.messaging.InternalMessagingService;
 import me.lucko.luckperms.common.model.Group;
@@ -197,6 +200,13 @@ public interface LuckPermsPlugin {
      */
     InheritanceGraphFactory getInheritanceGraphFactory();
 
+    /**
+     * Gets the reverse inheritance index, used to find the holders affected by a group change.
+     *
+     * @return the inheritance index
+     */
+    InheritanceIndex getInheritanceIndex();
+
     /**
      * Gets the class responsible for constructing PermissionCalculators on this platform.
      *
@@ -218,6 +228,13 @@ public interface LuckPermsPlugin {
      */
     PermissionRegistry getPermissionRegistry();
 
+    /**
+     * Gets the stats counter shared by all bounded permission lookup caches.
+     *
+     * @return the lookup cache stats counter
+     */
+    StatsCounter getPermissionLookupCacheStats();
+
     /**
      * Gets the log dispatcher running on the platform
      *
@@ -25,6 +25,8 @@
 
 package me.lucko.luckperms.common.plugin.scheduler;
 
+import java.util.Collections;
+import java.util.Map;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
@@ -65,6 +67,16 @@ public interface SchedulerAdapter {
         sync().execute(task);
     }
 
+    /**
+     * Gets information about the tasks run by the {@link #sync() sync executor},
+     * to be shown in the info command.
+     *
+     * @return the information, or an empty map if none is recorded
+     */
+    default Map<String, String> getSyncMeta() {
+        return Collections.emptyMap();
+    }
+
     /**
      * Executes the given task with a delay.
      *
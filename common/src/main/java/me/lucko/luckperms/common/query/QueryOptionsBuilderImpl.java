@@ -164,6 +164,6 @@ public class QueryOptionsBuilderImpl implements QueryOptions.Builder {
             }
         }
 
-        return new QueryOptionsImpl(this.mode, this.context, flags, this.options);
+        return QueryOptionsImpl.intern(new QueryOptionsImpl(this.mode, this.context, flags, this.options));
     }
 }
@@ -27,6 +27,8 @@ package me.lucko.luckperms.common.query;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 
 import me.lucko.luckperms.common.context.contextset.ImmutableContextSetImpl;
 
@@ -50,6 +52,25 @@ public class QueryOptionsImpl implements QueryOptions {
     public static final QueryOptions DEFAULT_CONTEXTUAL = new QueryOptionsImpl(QueryMode.CONTEXTUAL, ImmutableContextSetImpl.EMPTY, FlagUtils.DEFAULT_FLAGS, null);
     public static final QueryOptions DEFAULT_NON_CONTEXTUAL = new QueryOptionsImpl(QueryMode.NON_CONTEXTUAL, null, FlagUtils.DEFAULT_FLAGS, null);
 
+    /**
+     * Pool of canonical query options instances.
+     *
+     * <p>Query options are used as cache keys for cached data lookups, so resolving
+     * equal instances to the same object means those lookups can usually be
+     * satisfied by an identity check.</p>
+     */
+    private static final Interner<QueryOptions> INTERNER = Interners.newWeakInterner();
+
+    /**
+     * Gets the canonical instance of the given query options.
+     *
+     * @param queryOptions the query options
+     * @return the canonical instance
+     */
+    public static QueryOptions intern(QueryOptions queryOptions) {
+        return INTERNER.intern(queryOptions);
+    }
+
     // state
     private final QueryMode mode;
     private final ImmutableContextSet context;
@@ -0,0 +1,244 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.storage;
+
+import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.model.PermissionHolder;
+import me.lucko.luckperms.common.model.PermissionHolderIdentifier;
+import me.lucko.luckperms.common.model.User;
+import me.lucko.luckperms.common.plugin.scheduler.SchedulerAdapter;
+import me.lucko.luckperms.common.plugin.scheduler.SchedulerTask;
+import me.lucko.luckperms.common.storage.implementation.StorageImplementation;
+import me.lucko.luckperms.common.util.Throwing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind queue for holder saves.
+ *
+ * <p>Saves are held for a short window before being written. Further saves for the
+ * same holder within that window are coalesced into the pending save, which reads the
+ * holder's data when it is finally written.</p>
+ *
+ * <p>When the queue is flushed, the pending user and group saves are each passed to
+ * the storage implementation as a single batch.</p>
+ */
+final class SaveQueue {
+    private final SchedulerAdapter scheduler;
+    private final StorageImplementation implementation;
+    private final long window;
+
+    /** The pending saves, keyed by holder identifier. Guarded by itself */
+    private final Map<PermissionHolderIdentifier, PendingSave> pending = new LinkedHashMap<>();
+
+    /** The saves which have been taken from the queue and are being written. Guarded by {@link #pending} */
+    private final Map<PermissionHolderIdentifier, PendingSave> writing = new HashMap<>();
+
+    /** The scheduled flush task, if present. Guarded by {@link #pending} */
+    private SchedulerTask flushTask = null;
+
+    /** Lock held whilst flushing, so that a flush waits for any in-progress flush to complete */
+    private final Lock flushLock = new ReentrantLock();
+
+    SaveQueue(SchedulerAdapter scheduler, StorageImplementation implementation, long window, TimeUnit unit) {
+        this.scheduler = scheduler;
+        this.implementation = implementation;
+        this.window = unit.toMillis(window);
+    }
+
+    /**
+     * Queues a save for the given holder.
+     *
+     * @param holder the holder being saved
+     * @return a future which completes once the save has been written
+     */
+    CompletableFuture<Void> enqueue(PermissionHolder holder) {
+        synchronized (this.pending) {
+            PendingSave existing = this.pending.get(holder.getIdentifier());
+            if (existing != null) {
+                return existing.future;
+            }
+
+            PendingSave pendingSave = new PendingSave(holder);
+            this.pending.put(holder.getIdentifier(), pendingSave);
+
+            if (this.flushTask == null) {
+                try {
+                    this.flushTask = this.scheduler.asyncLater(this::flush, this.window, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException e) {
+                    // the scheduler has been shutdown, just flush now
+                    this.scheduler.executeAsync(this::flush);
+                }
+            }
+            return pendingSave.future;
+        }
+    }
+
+    /**
+     * Writes all pending saves.
+     *
+     * <p>When this method returns, all saves queued before it was called have been written.</p>
+     */
+    void flush() {
+        this.flushLock.lock();
+        try {
+            List<PendingSave> saves;
+            synchronized (this.pending) {
+                if (this.flushTask != null) {
+                    this.flushTask.cancel();
+                    this.flushTask = null;
+                }
+                if (this.pending.isEmpty()) {
+                    return;
+                }
+
+                saves = new ArrayList<>(this.pending.values());
+                this.pending.clear();
+                for (PendingSave save : saves) {
+                    this.writing.put(save.holder.getIdentifier(), save);
+                }
+            }
+
+            try {
+                write(saves);
+            } finally {
+                synchronized (this.pending) {
+                    for (PendingSave save : saves) {
+                        this.writing.remove(save.holder.getIdentifier(), save);
+                    }
+                }
+            }
+        } finally {
+            this.flushLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the pending save for a single holder, leaving the rest of the queue alone.
+     *
+     * <p>When this method returns, any save for the holder queued before it was called
+     * has been written.</p>
+     *
+     * @param identifier the identifier of the holder
+     */
+    void flush(PermissionHolderIdentifier identifier) {
+        PendingSave save;
+        PendingSave inProgress;
+        synchronized (this.pending) {
+            inProgress = this.writing.get(identifier);
+            save = this.pending.remove(identifier);
+            if (save != null) {
+                this.writing.put(identifier, save);
+            }
+        }
+
+        // wait for a save which was already being written
+        if (inProgress != null) {
+            try {
+                inProgress.future.join();
+            } catch (Exception e) {
+                // ignore - reported to whoever requested the save
+            }
+        }
+
+        if (save != null) {
+            try {
+                write(Collections.singletonList(save));
+            } finally {
+                synchronized (this.pending) {
+                    this.writing.remove(identifier, save);
+                }
+            }
+        }
+    }
+
+    private void write(List<PendingSave> saves) {
+        List<PendingSave> users = new ArrayList<>();
+        List<PendingSave> groups = new ArrayList<>();
+        for (PendingSave save : saves) {
+            if (save.holder instanceof User) {
+                users.add(save);
+            } else {
+                groups.add(save);
+            }
+        }
+
+        write(users, User.class, this.implementation::saveUsers, this.implementation::saveUser);
+        write(groups, Group.class, this.implementation::saveGroups, this.implementation::saveGroup);
+    }
+
+    private static <T extends PermissionHolder> void write(List<PendingSave> saves, Class<T> type, Throwing.Consumer<List<T>> batchSave, Throwing.Consumer<T> save) {
+        if (saves.isEmpty()) {
+            return;
+        }
+
+        if (saves.size() > 1) {
+            List<T> holders = new ArrayList<>(saves.size());
+            for (PendingSave pendingSave : saves) {
+                holders.add(type.cast(pendingSave.holder));
+            }
+
+            try {
+                batchSave.accept(holders);
+                for (PendingSave pendingSave : saves) {
+                    pendingSave.future.complete(null);
+                }
+                return;
+            } catch (Exception e) {
+                // fall back to saving each holder on its own, so the
+                // holder which caused the failure doesn't fail the others
+            }
+        }
+
+        for (PendingSave pendingSave : saves) {
+            try {
+                save.accept(type.cast(pendingSave.holder));
+                pendingSave.future.complete(null);
+            } catch (Exception e) {
+                pendingSave.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static final class PendingSave {
+        private final PermissionHolder holder;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        PendingSave(PermissionHolder holder) {
+            this.holder = holder;
+        }
+    }
+}
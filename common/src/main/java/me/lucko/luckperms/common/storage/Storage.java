@@ -27,9 +27,15 @@ package me.lucko.luckperms.common.storage;
 
 import com.google.common.collect.ImmutableList;
 
+import me.lucko.luckperms.common.actionlog.ActionFilter;
 import me.lucko.luckperms.common.actionlog.Log;
+import me.lucko.luckperms.common.actionlog.LogPage;
 import me.lucko.luckperms.common.bulkupdate.BulkUpdate;
+import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.event.EventDispatcher;
 import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.model.HolderType;
+import me.lucko.luckperms.common.model.PermissionHolderIdentifier;
 import me.lucko.luckperms.common.model.Track;
 import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.node.matcher.ConstraintNodeMatcher;
@@ -37,6 +43,7 @@ import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.storage.implementation.StorageImplementation;
 import me.lucko.luckperms.common.storage.implementation.split.SplitStorage;
 import me.lucko.luckperms.common.storage.misc.NodeEntry;
+import me.lucko.luckperms.common.util.PageParameters;
 import me.lucko.luckperms.common.util.Throwing;
 
 import net.luckperms.api.actionlog.Action;
@@ -45,16 +52,21 @@ import net.luckperms.api.event.cause.DeletionCause;
 import net.luckperms.api.model.PlayerSaveResult;
 import net.luckperms.api.node.Node;
 
+import org.checkerframework.checker.nullness.qual.Nullable;
+
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Provides a {@link CompletableFuture} based API for interacting with a {@link StorageImplementation}.
@@ -63,9 +75,19 @@ public class Storage {
     private final LuckPermsPlugin plugin;
     private final StorageImplementation implementation;
 
+    /** The queue used to coalesce user and group saves, null if saves are written immediately */
+    private final SaveQueue saveQueue;
+
+    /** The versions of each group when groups were last loaded, null if unknown. Guarded by itself */
+    private final Object[] groupVersionsLock = new Object[0];
+    private Map<String, Long> groupVersions = null;
+
     public Storage(LuckPermsPlugin plugin, StorageImplementation implementation) {
         this.plugin = plugin;
         this.implementation = implementation;
+
+        int saveWindow = plugin.getConfiguration().get(ConfigKeys.SAVE_COALESCING_WINDOW);
+        this.saveQueue = saveWindow > 0 ? new SaveQueue(plugin.getBootstrap().getScheduler(), implementation, saveWindow, TimeUnit.MILLISECONDS) : null;
     }
 
     public StorageImplementation getImplementation() {
@@ -90,7 +112,7 @@ public class Storage {
                 }
                 throw new CompletionException(e);
             }
-        }, this.plugin.getBootstrap().getScheduler().async());
+        }, async());
     }
 
     private CompletableFuture<Void> makeFuture(Throwing.Runnable runnable) {
@@ -103,7 +125,18 @@ public class Storage {
                 }
                 throw new CompletionException(e);
             }
-        }, this.plugin.getBootstrap().getScheduler().async());
+        }, async());
+    }
+
+    private Executor async() {
+        Executor async = this.plugin.getBootstrap().getScheduler().async();
+        EventDispatcher eventDispatcher = this.plugin.getEventDispatcher();
+        if (eventDispatcher == null) {
+            return async;
+        }
+
+        // carry any event batch open on the calling thread over to the storage task
+        return task -> async.execute(eventDispatcher.wrapInCurrentBatch(task));
     }
 
     public String getName() {
@@ -120,6 +153,13 @@ public class Storage {
     }
 
     public void shutdown() {
+        try {
+            flushQueuedSaves();
+        } catch (Exception e) {
+            this.plugin.getLogger().severe("Failed to write queued saves");
+            e.printStackTrace();
+        }
+
         try {
             this.implementation.shutdown();
         } catch (Exception e) {
@@ -128,6 +168,39 @@ public class Storage {
         }
     }
 
+    /**
+     * Writes any user or group saves which are waiting in the save queue.
+     */
+    private void flushQueuedSaves() {
+        if (this.saveQueue != null) {
+            this.saveQueue.flush();
+        }
+    }
+
+    /**
+     * Writes the save waiting in the save queue for a single holder, if there is one.
+     *
+     * @param identifier the identifier of the holder
+     */
+    private void flushQueuedSave(PermissionHolderIdentifier identifier) {
+        if (this.saveQueue != null) {
+            this.saveQueue.flush(identifier);
+        }
+    }
+
+    /**
+     * Returns a future which completes once all user and group saves requested
+     * before this method was called have been written.
+     *
+     * @return the future
+     */
+    public CompletableFuture<Void> flushSaves() {
+        if (this.saveQueue == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return makeFuture(this::flushQueuedSaves);
+    }
+
     public Map<String, String> getMeta() {
         return this.implementation.getMeta();
     }
@@ -140,12 +213,21 @@ public class Storage {
         return makeFuture(this.implementation::getLog);
     }
 
+    public CompletableFuture<LogPage> getLogPage(ActionFilter filter, @Nullable PageParameters page) {
+        return makeFuture(() -> this.implementation.getLogPage(filter, page));
+    }
+
     public CompletableFuture<Void> applyBulkUpdate(BulkUpdate bulkUpdate) {
-        return makeFuture(() -> this.implementation.applyBulkUpdate(bulkUpdate));
+        return makeFuture(() -> {
+            flushQueuedSaves();
+            this.implementation.applyBulkUpdate(bulkUpdate);
+        });
     }
 
     public CompletableFuture<User> loadUser(UUID uniqueId, String username) {
         return makeFuture(() -> {
+            // loading would discard any changes which are yet to be saved
+            flushQueuedSave(new PermissionHolderIdentifier(HolderType.USER, uniqueId.toString()));
             User user = this.implementation.loadUser(uniqueId, username);
             if (user != null) {
                 this.plugin.getEventDispatcher().dispatchUserLoad(user);
@@ -155,15 +237,36 @@ public class Storage {
     }
 
     public CompletableFuture<Void> saveUser(User user) {
+        if (this.saveQueue != null) {
+            return this.saveQueue.enqueue(user);
+        }
+        return makeFuture(() -> this.implementation.saveUser(user));
+    }
+
+    /**
+     * Saves a user without waiting in the save queue.
+     *
+     * <p>Used by bulk operations which save many distinct users, and so gain
+     * nothing from coalescing, but would otherwise wait out the full coalescing
+     * window for each save.</p>
+     *
+     * @param user the user to save
+     * @return a future which completes once the save has been written
+     */
+    public CompletableFuture<Void> saveUserImmediately(User user) {
         return makeFuture(() -> this.implementation.saveUser(user));
     }
 
     public CompletableFuture<Set<UUID>> getUniqueUsers() {
-        return makeFuture(this.implementation::getUniqueUsers);
+        return makeFuture(() -> {
+            flushQueuedSaves();
+            return this.implementation.getUniqueUsers();
+        });
     }
 
     public <N extends Node> CompletableFuture<List<NodeEntry<UUID, N>>> searchUserNodes(ConstraintNodeMatcher<N> constraint) {
         return makeFuture(() -> {
+            flushQueuedSaves();
             List<NodeEntry<UUID, N>> result = this.implementation.searchUserNodes(constraint);
             result.removeIf(entry -> entry.getNode().hasExpired());
             return ImmutableList.copyOf(result);
@@ -182,6 +285,7 @@ public class Storage {
 
     public CompletableFuture<Optional<Group>> loadGroup(String name) {
         return makeFuture(() -> {
+            flushQueuedSave(new PermissionHolderIdentifier(HolderType.GROUP, name.toLowerCase()));
             Optional<Group> group = this.implementation.loadGroup(name.toLowerCase());
             if (group.isPresent()) {
                 this.plugin.getEventDispatcher().dispatchGroupLoad(group.get());
@@ -192,17 +296,65 @@ public class Storage {
 
     public CompletableFuture<Void> loadAllGroups() {
         return makeFuture(() -> {
-            this.implementation.loadAllGroups();
+            flushQueuedSaves();
+            synchronized (this.groupVersionsLock) {
+                // read the versions first, so changes made whilst loading are picked up next time
+                Map<String, Long> versions = this.implementation.getGroupVersions();
+                this.implementation.loadAllGroups();
+                this.groupVersions = versions;
+            }
+            this.plugin.getEventDispatcher().dispatchGroupLoadAll();
+        });
+    }
+
+    /**
+     * Reloads the groups which have changed in storage since groups were last loaded.
+     *
+     * <p>All groups are reloaded if the implementation can't detect which groups
+     * have changed.</p>
+     *
+     * @return a future
+     */
+    public CompletableFuture<Void> loadChangedGroups() {
+        return makeFuture(() -> {
+            flushQueuedSaves();
+            synchronized (this.groupVersionsLock) {
+                Map<String, Long> versions = this.implementation.getGroupVersions();
+                Map<String, Long> previousVersions = this.groupVersions;
+
+                if (versions == null || previousVersions == null) {
+                    this.implementation.loadAllGroups();
+                } else {
+                    for (Map.Entry<String, Long> entry : versions.entrySet()) {
+                        String name = entry.getKey();
+                        if (Objects.equals(previousVersions.get(name), entry.getValue()) && this.plugin.getGroupManager().isLoaded(name)) {
+                            continue;
+                        }
+
+                        Optional<Group> group = this.implementation.loadGroup(name);
+                        if (group.isPresent()) {
+                            this.plugin.getEventDispatcher().dispatchGroupLoad(group.get());
+                        }
+                    }
+                    this.plugin.getGroupManager().retainAll(versions.keySet());
+                }
+                this.groupVersions = versions;
+            }
             this.plugin.getEventDispatcher().dispatchGroupLoadAll();
         });
     }
 
     public CompletableFuture<Void> saveGroup(Group group) {
+        if (this.saveQueue != null) {
+            return this.saveQueue.enqueue(group);
+        }
         return makeFuture(() -> this.implementation.saveGroup(group));
     }
 
     public CompletableFuture<Void> deleteGroup(Group group, DeletionCause cause) {
         return makeFuture(() -> {
+            // make sure a queued save doesn't recreate the group after it has been deleted
+            flushQueuedSave(group.getIdentifier());
             this.implementation.deleteGroup(group);
             this.plugin.getEventDispatcher().dispatchGroupDelete(group, cause);
         });
@@ -210,6 +362,7 @@ public class Storage {
 
     public <N extends Node> CompletableFuture<List<NodeEntry<String, N>>> searchGroupNodes(ConstraintNodeMatcher<N> constraint) {
         return makeFuture(() -> {
+            flushQueuedSaves();
             List<NodeEntry<String, N>> result = this.implementation.searchGroupNodes(constraint);
             result.removeIf(entry -> entry.getNode().hasExpired());
             return ImmutableList.copyOf(result);
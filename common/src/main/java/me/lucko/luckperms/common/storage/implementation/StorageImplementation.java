@@ -25,7 +25,9 @@
 
 package me.lucko.luckperms.common.storage.implementation;
 
+import me.lucko.luckperms.common.actionlog.ActionFilter;
 import me.lucko.luckperms.common.actionlog.Log;
+import me.lucko.luckperms.common.actionlog.LogPage;
 import me.lucko.luckperms.common.bulkupdate.BulkUpdate;
 import me.lucko.luckperms.common.model.Group;
 import me.lucko.luckperms.common.model.Track;
@@ -33,6 +35,7 @@ import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.node.matcher.ConstraintNodeMatcher;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.storage.misc.NodeEntry;
+import me.lucko.luckperms.common.util.PageParameters;
 
 import net.luckperms.api.actionlog.Action;
 import net.luckperms.api.model.PlayerSaveResult;
@@ -40,6 +43,7 @@ import net.luckperms.api.node.Node;
 
 import org.checkerframework.checker.nullness.qual.Nullable;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -64,12 +68,37 @@ public interface StorageImplementation {
 
     Log getLog() throws Exception;
 
+    /**
+     * Gets a page of the actions in the log which match the given filter.
+     *
+     * @param filter the filter
+     * @param page the page to return, or null to return all matching actions
+     * @return the page
+     * @throws Exception if an exception occurs
+     */
+    LogPage getLogPage(ActionFilter filter, @Nullable PageParameters page) throws Exception;
+
     void applyBulkUpdate(BulkUpdate bulkUpdate) throws Exception;
 
     User loadUser(UUID uniqueId, String username) throws Exception;
 
     void saveUser(User user) throws Exception;
 
+    /**
+     * Saves a number of users.
+     *
+     * <p>Implementations which can write the users together more cheaply than one at a
+     * time should override this method. By default each user is saved in turn.</p>
+     *
+     * @param users the users to save
+     * @throws Exception if an exception occurs, in which case any of the users may not have been saved
+     */
+    default void saveUsers(Collection<User> users) throws Exception {
+        for (User user : users) {
+            saveUser(user);
+        }
+    }
+
     Set<UUID> getUniqueUsers() throws Exception;
 
     <N extends Node> List<NodeEntry<UUID, N>> searchUserNodes(ConstraintNodeMatcher<N> constraint) throws Exception;
@@ -80,8 +109,36 @@ public interface StorageImplementation {
 
     void loadAllGroups() throws Exception;
 
+    /**
+     * Gets the current version of each stored group.
+     *
+     * <p>A group's version changes whenever its data is modified, so it can be used to
+     * find the groups which need to be reloaded without reading all of their data.</p>
+     *
+     * @return the group versions, or null if this implementation can't detect changes
+     * @throws Exception if an exception occurs
+     */
+    default @Nullable Map<String, Long> getGroupVersions() throws Exception {
+        return null;
+    }
+
     void saveGroup(Group group) throws Exception;
 
+    /**
+     * Saves a number of groups.
+     *
+     * <p>Implementations which can write the groups together more cheaply than one at a
+     * time should override this method. By default each group is saved in turn.</p>
+     *
+     * @param groups the groups to save
+     * @throws Exception if an exception occurs, in which case any of the groups may not have been saved
+     */
+    default void saveGroups(Collection<Group> groups) throws Exception {
+        for (Group group : groups) {
+            saveGroup(group);
+        }
+    }
+
     void deleteGroup(Group group) throws Exception;
 
     <N extends Node> List<NodeEntry<String, N>> searchGroupNodes(ConstraintNodeMatcher<N> constraint) throws Exception;
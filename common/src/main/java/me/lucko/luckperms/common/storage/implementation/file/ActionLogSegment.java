@@ -0,0 +1,347 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.storage.implementation.file;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import me.lucko.luckperms.common.actionlog.ActionFilter;
+import me.lucko.luckperms.common.actionlog.LoggedAction;
+
+import net.luckperms.api.actionlog.Action;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * A segment of the file-based action log, together with an index of the
+ * actions it contains.
+ *
+ * <p>Segments contain one serialized action per line. The index records the
+ * time range, sources and targets of the actions in the segment, so queries can
+ * skip segments which can't contain a match, and a sparse mapping from
+ * timestamps to offsets, so queries for recent actions can skip the start of
+ * a segment.</p>
+ */
+final class ActionLogSegment {
+
+    /** The number of actions between each entry in the sparse offset index */
+    private static final int OFFSET_INDEX_INTERVAL = 64;
+
+    static final String EXTENSION = ".txt";
+    static final String COMPRESSED_EXTENSION = ".txt.gz";
+    static final String INDEX_EXTENSION = ".idx";
+
+    // the segment id, the time (in millis) when the segment was started
+    private final long id;
+    private Path file;
+
+    // the number of actions in the segment
+    private int count = 0;
+    // the (uncompressed) length of the segment in bytes
+    private long length = 0;
+    private long minTime = Long.MAX_VALUE;
+    private long maxTime = Long.MIN_VALUE;
+    // if actions were appended in timestamp order, required to use the offset index
+    private boolean sorted = true;
+    // if the segment is complete, and its index has been saved
+    private boolean sealed = false;
+
+    private final Set<UUID> sources = new HashSet<>();
+    // target uuids, and type:name keys
+    private final Set<String> targets = new HashSet<>();
+
+    // pairs of (timestamp, offset) for every OFFSET_INDEX_INTERVAL'th action
+    private long[] offsetIndex = new long[16];
+    private int offsetIndexSize = 0;
+
+    ActionLogSegment(long id, Path file) {
+        this.id = id;
+        this.file = file;
+    }
+
+    public long getId() {
+        return this.id;
+    }
+
+    public Path getFile() {
+        return this.file;
+    }
+
+    public void setFile(Path file) {
+        this.file = file;
+    }
+
+    public boolean isCompressed() {
+        return this.file.getFileName().toString().endsWith(COMPRESSED_EXTENSION);
+    }
+
+    public boolean isSealed() {
+        return this.sealed;
+    }
+
+    public void setSealed(boolean sealed) {
+        this.sealed = sealed;
+    }
+
+    public Path getIndexFile() {
+        return this.file.resolveSibling(this.id + INDEX_EXTENSION);
+    }
+
+    public int getCount() {
+        return this.count;
+    }
+
+    public long getLength() {
+        return this.length;
+    }
+
+    public long getMinTime() {
+        return this.minTime;
+    }
+
+    public long getMaxTime() {
+        return this.maxTime;
+    }
+
+    /**
+     * Records an action written to the end of the segment.
+     *
+     * @param action the action
+     * @param bytes the length of the serialized action, including the line terminator
+     */
+    public void append(Action action, int bytes) {
+        long time = action.getTimestamp().getEpochSecond();
+        if (time < this.maxTime) {
+            this.sorted = false;
+        }
+
+        if (this.count % OFFSET_INDEX_INTERVAL == 0) {
+            if (this.offsetIndexSize + 2 > this.offsetIndex.length) {
+                this.offsetIndex = Arrays.copyOf(this.offsetIndex, this.offsetIndex.length * 2);
+            }
+            this.offsetIndex[this.offsetIndexSize++] = time;
+            this.offsetIndex[this.offsetIndexSize++] = this.length;
+        }
+
+        this.count++;
+        this.length += bytes;
+        this.minTime = Math.min(this.minTime, time);
+        this.maxTime = Math.max(this.maxTime, time);
+
+        this.sources.add(action.getSource().getUniqueId());
+        action.getTarget().getUniqueId().ifPresent(uuid -> this.targets.add(uuid.toString()));
+        this.targets.add(targetKey(action.getTarget().getType(), action.getTarget().getName()));
+    }
+
+    private static String targetKey(Action.Target.Type type, String name) {
+        return LoggedAction.getTypeCharacter(type) + ":" + name;
+    }
+
+    /**
+     * Gets if the segment may contain actions matching the filter.
+     *
+     * @param filter the filter
+     * @return false if the segment definitely doesn't contain a match
+     */
+    public boolean mayContain(ActionFilter filter) {
+        if (this.count == 0) {
+            return false;
+        }
+        if (filter.getAfter() != null && this.maxTime < filter.getAfter().getEpochSecond()) {
+            return false;
+        }
+        if (filter.getBefore() != null && this.minTime >= filter.getBefore().getEpochSecond()) {
+            return false;
+        }
+        if (filter.getSourceUniqueId() != null && !this.sources.contains(filter.getSourceUniqueId())) {
+            return false;
+        }
+        if (filter.getTargetUniqueId() != null && !this.targets.contains(filter.getTargetUniqueId().toString())) {
+            return false;
+        }
+        if (filter.getTargetName() != null) {
+            if (filter.getTargetType() != null) {
+                return this.targets.contains(targetKey(filter.getTargetType(), filter.getTargetName()));
+            }
+            for (Action.Target.Type type : Action.Target.Type.values()) {
+                if (this.targets.contains(targetKey(type, filter.getTargetName()))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Gets the offset to start reading from to find all actions matching the filter.
+     *
+     * @param filter the filter
+     * @return the offset
+     */
+    public long getStartOffset(ActionFilter filter) {
+        if (filter.getAfter() == null || !this.sorted) {
+            return 0;
+        }
+
+        // find the last indexed action before the lower bound - all actions before it are too old
+        long after = filter.getAfter().getEpochSecond();
+        long offset = 0;
+        for (int i = 0; i < this.offsetIndexSize; i += 2) {
+            if (this.offsetIndex[i] >= after) {
+                break;
+            }
+            offset = this.offsetIndex[i + 1];
+        }
+        return offset;
+    }
+
+    /**
+     * Opens a stream to read the (uncompressed) content of the segment.
+     *
+     * @param offset the offset to start reading from
+     * @return the stream
+     * @throws IOException if an i/o error occurs
+     */
+    public InputStream openStream(long offset) throws IOException {
+        InputStream in = Files.newInputStream(this.file);
+        try {
+            if (isCompressed()) {
+                in = new GZIPInputStream(in);
+            }
+            in = new BufferedInputStream(in);
+
+            long remaining = offset;
+            while (remaining > 0) {
+                long skipped = in.skip(remaining);
+                if (skipped <= 0) {
+                    throw new IOException("Unable to skip to offset " + offset + " in " + this.file);
+                }
+                remaining -= skipped;
+            }
+            return in;
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads a line from the stream.
+     *
+     * @param in the stream
+     * @param buffer a buffer to use
+     * @return the line (excluding the terminator), or null if the end of the stream was reached
+     * @throws IOException if an i/o error occurs
+     */
+    static String readLine(InputStream in, ByteArrayOutputStream buffer) throws IOException {
+        buffer.reset();
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') {
+                return lineToString(buffer);
+            }
+            buffer.write(b);
+        }
+        return buffer.size() == 0 ? null : lineToString(buffer);
+    }
+
+    private static String lineToString(ByteArrayOutputStream buffer) throws IOException {
+        String line = buffer.toString(StandardCharsets.UTF_8.name());
+        return line.endsWith("\r") ? line.substring(0, line.length() - 1) : line;
+    }
+
+    public JsonObject serializeIndex() {
+        JsonObject object = new JsonObject();
+        object.add("count", new JsonPrimitive(this.count));
+        object.add("length", new JsonPrimitive(this.length));
+        object.add("minTime", new JsonPrimitive(this.minTime));
+        object.add("maxTime", new JsonPrimitive(this.maxTime));
+        object.add("sorted", new JsonPrimitive(this.sorted));
+
+        JsonArray sources = new JsonArray();
+        for (UUID source : this.sources) {
+            sources.add(source.toString());
+        }
+        object.add("sources", sources);
+
+        JsonArray targets = new JsonArray();
+        for (String target : this.targets) {
+            targets.add(target);
+        }
+        object.add("targets", targets);
+
+        JsonArray offsets = new JsonArray();
+        for (int i = 0; i < this.offsetIndexSize; i++) {
+            offsets.add(this.offsetIndex[i]);
+        }
+        object.add("offsets", offsets);
+        return object;
+    }
+
+    public void deserializeIndex(JsonObject object) {
+        this.count = object.get("count").getAsInt();
+        this.length = object.get("length").getAsLong();
+        this.minTime = object.get("minTime").getAsLong();
+        this.maxTime = object.get("maxTime").getAsLong();
+        this.sorted = object.get("sorted").getAsBoolean();
+
+        this.sources.clear();
+        for (JsonElement source : object.getAsJsonArray("sources")) {
+            this.sources.add(UUID.fromString(source.getAsString()));
+        }
+
+        this.targets.clear();
+        for (JsonElement target : object.getAsJsonArray("targets")) {
+            this.targets.add(target.getAsString());
+        }
+
+        JsonArray offsets = object.getAsJsonArray("offsets");
+        this.offsetIndex = new long[Math.max(16, offsets.size())];
+        this.offsetIndexSize = offsets.size();
+        for (int i = 0; i < offsets.size(); i++) {
+            this.offsetIndex[i] = offsets.get(i).getAsLong();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ActionLogSegment(id=" + this.id + ", file=" + this.file + ", count=" + this.count + ")";
+    }
+}
@@ -29,38 +29,68 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.stream.JsonReader;
 
+import me.lucko.luckperms.common.actionlog.ActionFilter;
 import me.lucko.luckperms.common.actionlog.ActionJsonSerializer;
 import me.lucko.luckperms.common.actionlog.Log;
+import me.lucko.luckperms.common.actionlog.LogPage;
+import me.lucko.luckperms.common.actionlog.LoggedAction;
 import me.lucko.luckperms.common.cache.BufferedRequest;
+import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.util.MoreFiles;
+import me.lucko.luckperms.common.util.PageParameters;
 import me.lucko.luckperms.common.util.gson.GsonProvider;
 
 import net.luckperms.api.actionlog.Action;
 
+import org.checkerframework.checker.nullness.qual.Nullable;
+
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
 
+/**
+ * The action log for file-based storage types.
+ *
+ * <p>The log is split into {@link ActionLogSegment segments}. Actions are appended
+ * to the newest segment, which is sealed (and optionally compressed) and replaced
+ * once it grows too large or too old. Sealed segments are deleted as a whole once
+ * all of their actions are older than the retention period.</p>
+ */
 public class FileActionLogger {
 
     /**
-     * The path to save logger content to
+     * The directory containing the log segments
      */
-    private Path contentFile;
+    private Path directory;
 
     /**
-     * Lock to ensure the file isn't written to by multiple threads
+     * The segments in the log, oldest first. The last segment is the one being written to.
      */
-    private final ReentrantLock writeLock = new ReentrantLock();
+    private final List<ActionLogSegment> segments = new ArrayList<>();
+
+    /**
+     * Lock to ensure the segments aren't written to by multiple threads, or read whilst being modified
+     */
+    private final ReentrantLock lock = new ReentrantLock();
 
     /**
      * The queue of entries pending save to the file
@@ -69,12 +99,36 @@ public class FileActionLogger {
 
     private final SaveBuffer saveBuffer;
 
+    private final LuckPermsPlugin plugin;
+    private final long maxSegmentLength;
+    private final long maxSegmentAge;
+    private final boolean compressSegments;
+    private final long retention;
+
     public FileActionLogger(LuckPermsPlugin plugin) {
+        this.plugin = plugin;
         this.saveBuffer = new SaveBuffer(plugin);
+        this.maxSegmentLength = plugin.getConfiguration().get(ConfigKeys.ACTION_LOG_SEGMENT_SIZE) * 1024L;
+        this.maxSegmentAge = TimeUnit.HOURS.toMillis(plugin.getConfiguration().get(ConfigKeys.ACTION_LOG_SEGMENT_DURATION));
+        this.compressSegments = plugin.getConfiguration().get(ConfigKeys.COMPRESS_ACTION_LOG_SEGMENTS);
+        this.retention = TimeUnit.DAYS.toSeconds(plugin.getConfiguration().get(ConfigKeys.ACTION_LOG_RETENTION));
     }
 
-    public void init(Path contentFile, Path legacyFile) {
-        this.contentFile = contentFile;
+    public void init(Path directory, Path contentFile, Path legacyFile) throws IOException {
+        this.directory = MoreFiles.createDirectoriesIfNotExists(directory);
+
+        this.lock.lock();
+        try {
+            // the log used to be stored in a single file - use it as the first segment
+            if (Files.exists(contentFile)) {
+                Files.move(contentFile, directory.resolve(0 + ActionLogSegment.EXTENSION));
+            }
+
+            loadSegments();
+            applyRetention();
+        } finally {
+            this.lock.unlock();
+        }
 
         if (Files.exists(legacyFile)) {
             // migrate
@@ -102,13 +156,97 @@ public class FileActionLogger {
 
     }
 
+    private void loadSegments() throws IOException {
+        List<ActionLogSegment> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory)) {
+            for (Path file : stream) {
+                String fileName = file.getFileName().toString();
+
+                String id;
+                if (fileName.endsWith(ActionLogSegment.COMPRESSED_EXTENSION)) {
+                    id = fileName.substring(0, fileName.length() - ActionLogSegment.COMPRESSED_EXTENSION.length());
+
+                    // an uncompressed copy remains if compression was interrupted
+                    if (Files.exists(file.resolveSibling(id + ActionLogSegment.EXTENSION))) {
+                        Files.delete(file);
+                        continue;
+                    }
+                } else if (fileName.endsWith(ActionLogSegment.EXTENSION)) {
+                    id = fileName.substring(0, fileName.length() - ActionLogSegment.EXTENSION.length());
+                } else {
+                    continue;
+                }
+
+                try {
+                    segments.add(new ActionLogSegment(Long.parseLong(id), file));
+                } catch (NumberFormatException e) {
+                    // not a segment
+                }
+            }
+        }
+        segments.sort(Comparator.comparingLong(ActionLogSegment::getId));
+
+        for (int i = 0; i < segments.size(); i++) {
+            ActionLogSegment segment = segments.get(i);
+            loadIndex(segment);
+
+            // only the newest segment should be written to
+            if (!segment.isSealed() && i != segments.size() - 1) {
+                seal(segment);
+            }
+        }
+
+        this.segments.clear();
+        this.segments.addAll(segments);
+    }
+
+    private void loadIndex(ActionLogSegment segment) throws IOException {
+        Path indexFile = segment.getIndexFile();
+        if (Files.exists(indexFile)) {
+            try (BufferedReader reader = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+                segment.deserializeIndex(GsonProvider.parser().parse(reader).getAsJsonObject());
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+
+            // the index is written when a segment is sealed - check the segment hasn't changed since
+            if (segment.isCompressed() || Files.size(segment.getFile()) == segment.getLength()) {
+                segment.setSealed(true);
+                return;
+            }
+        }
+
+        // rebuild the index from the segment content
+        ActionLogSegment rebuilt = new ActionLogSegment(segment.getId(), segment.getFile());
+        try (InputStream in = segment.openStream(0)) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            String line;
+            while ((line = ActionLogSegment.readLine(in, buffer)) != null) {
+                int bytes = buffer.size() + 1;
+                try {
+                    rebuilt.append(ActionJsonSerializer.deserialize(GsonProvider.parser().parse(line)), bytes);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        segment.deserializeIndex(rebuilt.serializeIndex());
+
+        // a compressed segment can't be appended to, so it must have been sealed -
+        // the index was lost, so write it again
+        if (segment.isCompressed()) {
+            writeIndex(segment);
+            segment.setSealed(true);
+        }
+    }
+
     public void logAction(Action entry) {
         this.entryQueue.add(entry);
         this.saveBuffer.request();
     }
 
     public void flush() {
-        this.writeLock.lock();
+        this.lock.lock();
         try {
             // don't perform the i/o process if there's nothing to be written
             if (this.entryQueue.peek() == null) {
@@ -116,42 +254,196 @@ public class FileActionLogger {
             }
 
             try {
-                List<String> toWrite = new ArrayList<>(this.entryQueue.size());
+                ActionLogSegment segment = getSegmentForWriting();
+
+                ByteArrayOutputStream toWrite = new ByteArrayOutputStream();
 
                 // poll the queue for new entries
                 for (Action e; (e = this.entryQueue.poll()) != null; ) {
-                    toWrite.add(GsonProvider.normal().toJson(ActionJsonSerializer.serialize(e)));
+                    byte[] line = (GsonProvider.normal().toJson(ActionJsonSerializer.serialize(e)) + "\n").getBytes(StandardCharsets.UTF_8);
+                    toWrite.write(line);
+                    segment.append(e, line.length);
                 }
 
-                Files.write(this.contentFile, toWrite, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                try (OutputStream out = Files.newOutputStream(segment.getFile(), StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                    toWrite.writeTo(out);
+                }
             } catch (IOException e) {
                 e.printStackTrace();
             }
         } finally {
-            this.writeLock.unlock();
+            this.lock.unlock();
         }
     }
 
-    public Log getLog() throws IOException {
-        if (!Files.exists(this.contentFile)) {
-            return Log.empty();
+    private ActionLogSegment getSegmentForWriting() throws IOException {
+        ActionLogSegment current = this.segments.isEmpty() ? null : this.segments.get(this.segments.size() - 1);
+        if (current != null && !current.isSealed()) {
+            if (!shouldRollOver(current)) {
+                return current;
+            }
+
+            seal(current);
         }
 
+        // ids are the creation time, but must be unique and increasing
+        long id = System.currentTimeMillis();
+        if (current != null && id <= current.getId()) {
+            id = current.getId() + 1;
+        }
+
+        ActionLogSegment segment = new ActionLogSegment(id, this.directory.resolve(id + ActionLogSegment.EXTENSION));
+        this.segments.add(segment);
+        applyRetention();
+        return segment;
+    }
+
+    private boolean shouldRollOver(ActionLogSegment segment) {
+        if (segment.getCount() == 0) {
+            return false;
+        }
+        return segment.getLength() >= this.maxSegmentLength ||
+                (this.maxSegmentAge != 0 && System.currentTimeMillis() - segment.getId() >= this.maxSegmentAge);
+    }
+
+    private void seal(ActionLogSegment segment) throws IOException {
+        if (this.compressSegments && !segment.isCompressed()) {
+            Path uncompressed = segment.getFile();
+            Path compressed = uncompressed.resolveSibling(segment.getId() + ActionLogSegment.COMPRESSED_EXTENSION);
+            Path tmp = uncompressed.resolveSibling(segment.getId() + ActionLogSegment.COMPRESSED_EXTENSION + ".tmp");
+
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(tmp))) {
+                Files.copy(uncompressed, out);
+            }
+            Files.move(tmp, compressed, StandardCopyOption.REPLACE_EXISTING);
+
+            // write the index before removing the uncompressed copy, so the
+            // compressed segment is never left without one
+            writeIndex(segment);
+            segment.setFile(compressed);
+            Files.delete(uncompressed);
+        } else {
+            writeIndex(segment);
+        }
+        segment.setSealed(true);
+    }
+
+    private static void writeIndex(ActionLogSegment segment) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(segment.getIndexFile(), StandardCharsets.UTF_8)) {
+            GsonProvider.normal().toJson(segment.serializeIndex(), writer);
+        }
+    }
+
+    private void applyRetention() {
+        if (this.retention == 0) {
+            return;
+        }
+
+        long cutoff = System.currentTimeMillis() / 1000L - this.retention;
+
+        // never delete the segment being written to
+        for (int i = 0; i < this.segments.size() - 1; ) {
+            ActionLogSegment segment = this.segments.get(i);
+            if (segment.getCount() != 0 && segment.getMaxTime() >= cutoff) {
+                i++;
+                continue;
+            }
+
+            try {
+                Files.deleteIfExists(segment.getFile());
+                Files.deleteIfExists(segment.getIndexFile());
+                this.segments.remove(i);
+            } catch (IOException e) {
+                e.printStackTrace();
+                i++;
+            }
+        }
+    }
+
+    public Log getLog() throws IOException {
         Log.Builder log = Log.builder();
 
-        try (BufferedReader reader = Files.newBufferedReader(this.contentFile, StandardCharsets.UTF_8)) {
+        this.lock.lock();
+        try {
+            for (ActionLogSegment segment : this.segments) {
+                readSegment(segment, ActionFilter.any(), log::add);
+            }
+        } finally {
+            this.lock.unlock();
+        }
+
+        return log.build();
+    }
+
+    public LogPage getLogPage(ActionFilter filter, @Nullable PageParameters page) throws IOException {
+        // the range of (newest first) positions to return
+        int from = page == null ? 0 : page.getOffset();
+        int to = page == null ? Integer.MAX_VALUE : from + page.getPageSize();
+
+        // with no filter, the number of actions in each segment is already known
+        boolean unfiltered = filter.equals(ActionFilter.any());
+
+        List<LoggedAction> content = new ArrayList<>();
+        int total = 0;
+
+        this.lock.lock();
+        try {
+            for (int i = this.segments.size() - 1; i >= 0; ) {
+                // segments are sorted as a group if their time ranges overlap, so that
+                // every action in the group is more recent than those in older groups
+                int end = i;
+                long minTime = this.segments.get(i).getMinTime();
+                int count = this.segments.get(i).getCount();
+                while (i > 0 && this.segments.get(i - 1).getMaxTime() >= minTime) {
+                    i--;
+                    minTime = Math.min(minTime, this.segments.get(i).getMinTime());
+                    count += this.segments.get(i).getCount();
+                }
+                int start = i--;
+
+                if (unfiltered && (total + count <= from || total >= to)) {
+                    total += count;
+                    continue;
+                }
+
+                List<LoggedAction> matching = new ArrayList<>();
+                for (int j = start; j <= end; j++) {
+                    ActionLogSegment segment = this.segments.get(j);
+                    if (segment.mayContain(filter)) {
+                        readSegment(segment, filter, matching::add);
+                    }
+                }
+                matching.sort(Comparator.reverseOrder());
+
+                for (LoggedAction action : matching) {
+                    if (total >= from && total < to) {
+                        content.add(action);
+                    }
+                    total++;
+                }
+            }
+        } finally {
+            this.lock.unlock();
+        }
+
+        return LogPage.of(content, page, total);
+    }
+
+    private static void readSegment(ActionLogSegment segment, ActionFilter filter, Consumer<LoggedAction> consumer) throws IOException {
+        try (InputStream in = segment.openStream(segment.getStartOffset(filter))) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
             String line;
-            while ((line = reader.readLine()) != null) {
+            while ((line = ActionLogSegment.readLine(in, buffer)) != null) {
                 try {
-                    JsonElement parsed = GsonProvider.parser().parse(line);
-                    log.add(ActionJsonSerializer.deserialize(parsed));
+                    LoggedAction action = ActionJsonSerializer.deserialize(GsonProvider.parser().parse(line));
+                    if (filter.test(action)) {
+                        consumer.accept(action);
+                    }
                 } catch (Exception e) {
                     e.printStackTrace();
                 }
             }
         }
-
-        return log.build();
     }
 
     private final class SaveBuffer extends BufferedRequest<Void> {
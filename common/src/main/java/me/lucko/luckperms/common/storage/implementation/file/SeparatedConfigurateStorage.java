@@ -44,7 +44,9 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
@@ -298,6 +300,22 @@ public class SeparatedConfigurateStorage extends AbstractConfigurateStorage {
         this.plugin.getGroupManager().retainAll(groups);
     }
 
+    @Override
+    public Map<String, Long> getGroupVersions() throws IOException {
+        Map<String, Long> versions = new HashMap<>();
+        try (Stream<Path> stream = Files.list(this.groupsDirectory)) {
+            for (Path file : (Iterable<Path>) stream.filter(getFileTypeFilter())::iterator) {
+                String name = file.getFileName().toString();
+                name = name.substring(0, name.length() - this.fileExtension.length());
+
+                // use the modification time & size of the file as its version
+                long version = Files.getLastModifiedTime(file).toMillis() * 31 + Files.size(file);
+                versions.put(name, version);
+            }
+        }
+        return versions;
+    }
+
     @Override
     public <N extends Node> List<NodeEntry<String, N>> searchGroupNodes(ConstraintNodeMatcher<N> constraint) throws Exception {
         List<NodeEntry<String, N>> held = new ArrayList<>();
@@ -31,15 +31,34 @@ import com.mongodb.MongoClientOptions;
 import com.mongodb.MongoClientURI;
 import com.mongodb.MongoCredential;
 import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Collation;
+import com.mongodb.client.model.CollationStrength;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
 import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
 
+import me.lucko.luckperms.common.actionlog.ActionFilter;
 import me.lucko.luckperms.common.actionlog.Log;
+import me.lucko.luckperms.common.actionlog.LogPage;
 import me.lucko.luckperms.common.actionlog.LoggedAction;
 import me.lucko.luckperms.common.bulkupdate.BulkUpdate;
+import me.lucko.luckperms.common.bulkupdate.comparison.Comparison;
+import me.lucko.luckperms.common.bulkupdate.comparison.Constraint;
+import me.lucko.luckperms.common.bulkupdate.comparison.StandardComparison;
+import me.lucko.luckperms.common.bulkupdate.query.Query;
+import me.lucko.luckperms.common.bulkupdate.query.QueryField;
 import me.lucko.luckperms.common.context.contextset.MutableContextSetImpl;
 import me.lucko.luckperms.common.model.Group;
 import me.lucko.luckperms.common.model.Track;
@@ -53,6 +72,7 @@ import me.lucko.luckperms.common.storage.misc.NodeEntry;
 import me.lucko.luckperms.common.storage.misc.PlayerSaveResultImpl;
 import me.lucko.luckperms.common.storage.misc.StorageCredentials;
 import me.lucko.luckperms.common.util.Iterators;
+import me.lucko.luckperms.common.util.PageParameters;
 
 import net.luckperms.api.actionlog.Action;
 import net.luckperms.api.context.Context;
@@ -65,9 +85,13 @@ import net.luckperms.api.node.Node;
 import net.luckperms.api.node.NodeBuilder;
 
 import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -76,9 +100,20 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 public class MongoStorage implements StorageImplementation {
+    private static final int BULK_UPDATE_BATCH_SIZE = 1000;
+
+    /** Collation used to compare node keys, matching {@link StandardComparison#EQUAL} */
+    private static final Collation CASE_INSENSITIVE = Collation.builder()
+            .locale("en")
+            .collationStrength(CollationStrength.SECONDARY)
+            .build();
+
     private final LuckPermsPlugin plugin;
 
     private final StorageCredentials configuration;
@@ -87,6 +122,9 @@ public class MongoStorage implements StorageImplementation {
     private final String prefix;
     private final String connectionUri;
 
+    // if the action log contains documents in the old format
+    private boolean legacyActionLog = false;
+
     public MongoStorage(LuckPermsPlugin plugin, StorageCredentials configuration, String prefix, String connectionUri) {
         this.plugin = plugin;
         this.configuration = configuration;
@@ -131,6 +169,25 @@ public class MongoStorage implements StorageImplementation {
         }
         
         this.database = this.mongoClient.getDatabase(this.configuration.getDatabase());
+
+        // support the node searches - see #findHoldersWithNode
+        for (String collection : new String[]{"users", "groups"}) {
+            MongoCollection<Document> c = this.database.getCollection(this.prefix + collection);
+            IndexOptions options = new IndexOptions().collation(CASE_INSENSITIVE);
+            c.createIndex(Indexes.ascending("permissions.key"), options);
+            c.createIndex(Indexes.ascending("permissions.permission"), options.sparse(true));
+        }
+
+        // support the action log queries - see #getLogPage
+        MongoCollection<Document> actions = this.database.getCollection(this.prefix + "action");
+        actions.createIndex(Indexes.descending("timestamp"));
+        actions.createIndex(Indexes.compoundIndex(Indexes.ascending("source.uniqueId"), Indexes.descending("timestamp")));
+        actions.createIndex(Indexes.compoundIndex(Indexes.ascending("target.uniqueId"), Indexes.descending("timestamp")));
+        actions.createIndex(Indexes.compoundIndex(Indexes.ascending("target.type", "target.name"), Indexes.descending("timestamp")));
+        actions.createIndex(Indexes.ascending("actor"), new IndexOptions().sparse(true));
+
+        // actions are no longer written in the old format, so only check for them once
+        this.legacyActionLog = actions.find(Filters.exists("actor")).projection(Projections.include("_id")).first() != null;
     }
 
     @Override
@@ -194,104 +251,190 @@ public class MongoStorage implements StorageImplementation {
         MongoCollection<Document> c = this.database.getCollection(this.prefix + "action");
         try (MongoCursor<Document> cursor = c.find().iterator()) {
             while (cursor.hasNext()) {
-                Document d = cursor.next();
+                log.add(actionFromDoc(cursor.next()));
+            }
+        }
+        return log.build();
+    }
+
+    @Override
+    public LogPage getLogPage(ActionFilter filter, @Nullable PageParameters page) {
+        MongoCollection<Document> c = this.database.getCollection(this.prefix + "action");
 
-                if (d.containsKey("source")) {
-                    // new format
-                    Document source = d.get("source", Document.class);
-                    Document target = d.get("target", Document.class);
+        Action.Target.Type type = filter.getTargetType();
+        Bson query = actionFilter(filter, "source.uniqueId", "source.name", "target.type", type == null ? null : type.name(), "target.uniqueId", "target.name", "description");
+        if (this.legacyActionLog) {
+            // also match actions in the old document format, see #actionFromDoc
+            query = Filters.or(query, Filters.and(
+                    Filters.exists("source", false),
+                    actionFilter(filter, "actor", "actorName", "type", type == null ? null : Character.toString(LoggedAction.getTypeCharacter(type)), "acted", "actedName", "action")
+            ));
+        }
 
-                    UUID targetUniqueId = null;
-                    if (target.containsKey("uniqueId")) {
-                        targetUniqueId = target.get("uniqueId", UUID.class);
-                    }
+        int totalEntries = page == null ? -1 : (int) c.countDocuments(query);
 
-                    LoggedAction e = LoggedAction.build()
-                            .timestamp(Instant.ofEpochSecond(d.getLong("timestamp")))
-                            .source(source.get("uniqueId", UUID.class))
-                            .sourceName(source.getString("name"))
-                            .targetType(LoggedAction.parseType(target.getString("type")))
-                            .target(targetUniqueId)
-                            .targetName(target.getString("name"))
-                            .description(d.getString("description"))
-                            .build();
-
-                    log.add(e);
-                } else {
-                    // old format
-                    UUID actedUuid = null;
-                    if (d.containsKey("acted")) {
-                        actedUuid = d.get("acted", UUID.class);
-                    }
+        List<LoggedAction> content = new ArrayList<>();
+        if (page == null || totalEntries > page.getOffset()) {
+            FindIterable<Document> find = c.find(query).sort(Sorts.descending("timestamp", "_id"));
+            if (page != null) {
+                find = find.skip(page.getOffset()).limit(page.getPageSize());
+            }
 
-                    LoggedAction e = LoggedAction.build()
-                            .timestamp(Instant.ofEpochSecond(d.getLong("timestamp")))
-                            .source(d.get("actor", UUID.class))
-                            .sourceName(d.getString("actorName"))
-                            .targetType(LoggedAction.parseTypeCharacter(d.getString("type").charAt(0)))
-                            .target(actedUuid)
-                            .targetName(d.getString("actedName"))
-                            .description(d.getString("action"))
-                            .build();
-
-                    log.add(e);
+            try (MongoCursor<Document> cursor = find.iterator()) {
+                while (cursor.hasNext()) {
+                    content.add(actionFromDoc(cursor.next()));
                 }
             }
         }
-        return log.build();
+
+        return LogPage.of(content, page, page == null ? content.size() : totalEntries);
     }
 
-    @Override
-    public void applyBulkUpdate(BulkUpdate bulkUpdate) {
-        if (bulkUpdate.getDataType().isIncludingUsers()) {
-            MongoCollection<Document> c = this.database.getCollection(this.prefix + "users");
-            try (MongoCursor<Document> cursor = c.find().iterator()) {
-                while (cursor.hasNext()) {
-                    Document d = cursor.next();
+    private static Bson actionFilter(ActionFilter filter, String sourceUniqueId, String sourceName, String targetType, String targetTypeValue, String targetUniqueId, String targetName, String description) {
+        List<Bson> filters = new ArrayList<>();
+        if (filter.getSourceUniqueId() != null) {
+            filters.add(Filters.eq(sourceUniqueId, filter.getSourceUniqueId()));
+        }
+        if (targetTypeValue != null) {
+            filters.add(Filters.eq(targetType, targetTypeValue));
+        }
+        if (filter.getTargetUniqueId() != null) {
+            filters.add(Filters.eq(targetUniqueId, filter.getTargetUniqueId()));
+        }
+        if (filter.getTargetName() != null) {
+            filters.add(Filters.eq(targetName, filter.getTargetName()));
+        }
+        if (filter.getAfter() != null) {
+            filters.add(Filters.gte("timestamp", filter.getAfter().getEpochSecond()));
+        }
+        if (filter.getBefore() != null) {
+            filters.add(Filters.lt("timestamp", filter.getBefore().getEpochSecond()));
+        }
+        if (filter.getSearch() != null) {
+            String regex = Pattern.quote(filter.getSearch());
+            filters.add(Filters.or(
+                    Filters.regex(sourceName, regex, "i"),
+                    Filters.regex(targetName, regex, "i"),
+                    Filters.regex(description, regex, "i")
+            ));
+        }
+        return filters.isEmpty() ? new Document() : Filters.and(filters);
+    }
 
-                    UUID uuid = getDocumentId(d);
-                    Set<Node> nodes = new HashSet<>(nodesFromDoc(d));
-                    Set<Node> results = nodes.stream()
-                            .map(bulkUpdate::apply)
-                            .filter(Objects::nonNull)
-                            .collect(Collectors.toSet());
+    private static LoggedAction actionFromDoc(Document d) {
+        if (d.containsKey("source")) {
+            // new format
+            Document source = d.get("source", Document.class);
+            Document target = d.get("target", Document.class);
 
-                    if (!nodes.equals(results)) {
-                        List<Document> newNodes = results.stream()
-                                .map(MongoStorage::nodeToDoc)
-                                .collect(Collectors.toList());
+            UUID targetUniqueId = null;
+            if (target.containsKey("uniqueId")) {
+                targetUniqueId = target.get("uniqueId", UUID.class);
+            }
 
-                        d.append("permissions", newNodes).remove("perms");
-                        c.replaceOne(new Document("_id", uuid), d);
-                    }
-                }
+            return LoggedAction.build()
+                    .timestamp(Instant.ofEpochSecond(d.getLong("timestamp")))
+                    .source(source.get("uniqueId", UUID.class))
+                    .sourceName(source.getString("name"))
+                    .targetType(LoggedAction.parseType(target.getString("type")))
+                    .target(targetUniqueId)
+                    .targetName(target.getString("name"))
+                    .description(d.getString("description"))
+                    .build();
+        } else {
+            // old format
+            UUID actedUuid = null;
+            if (d.containsKey("acted")) {
+                actedUuid = d.get("acted", UUID.class);
             }
+
+            return LoggedAction.build()
+                    .timestamp(Instant.ofEpochSecond(d.getLong("timestamp")))
+                    .source(d.get("actor", UUID.class))
+                    .sourceName(d.getString("actorName"))
+                    .targetType(LoggedAction.parseTypeCharacter(d.getString("type").charAt(0)))
+                    .target(actedUuid)
+                    .targetName(d.getString("actedName"))
+                    .description(d.getString("action"))
+                    .build();
+        }
+    }
+
+    @Override
+    public void applyBulkUpdate(BulkUpdate bulkUpdate) {
+        // only constraints on the permission can be evaluated by the server, the
+        // rest are checked when the update is applied to each node
+        List<Constraint> constraints = bulkUpdate.getQueries().stream()
+                .filter(query -> query.getField() == QueryField.PERMISSION)
+                .map(Query::getConstraint)
+                .collect(Collectors.toList());
+
+        if (bulkUpdate.getDataType().isIncludingUsers()) {
+            applyBulkUpdate(bulkUpdate, constraints, "users", nodes -> Updates.set("permissions", nodes));
         }
 
         if (bulkUpdate.getDataType().isIncludingGroups()) {
-            MongoCollection<Document> c = this.database.getCollection(this.prefix + "groups");
-            try (MongoCursor<Document> cursor = c.find().iterator()) {
-                while (cursor.hasNext()) {
-                    Document d = cursor.next();
+            applyBulkUpdate(bulkUpdate, constraints, "groups", nodes -> Updates.combine(
+                    Updates.set("permissions", nodes),
+                    Updates.set("version", newGroupVersion())
+            ));
+        }
+    }
 
-                    String holder = d.getString("_id");
-                    Set<Node> nodes = new HashSet<>(nodesFromDoc(d));
-                    Set<Node> results = nodes.stream()
-                            .map(bulkUpdate::apply)
-                            .filter(Objects::nonNull)
-                            .collect(Collectors.toSet());
+    private void applyBulkUpdate(BulkUpdate bulkUpdate, List<Constraint> constraints, String collection, Function<List<Document>, Bson> update) {
+        MongoCollection<Document> c = this.database.getCollection(this.prefix + collection);
+        long startTime = System.currentTimeMillis();
 
-                    if (!nodes.equals(results)) {
-                        List<Document> newNodes = results.stream()
-                                .map(MongoStorage::nodeToDoc)
-                                .collect(Collectors.toList());
+        List<WriteModel<Document>> batch = new ArrayList<>(BULK_UPDATE_BATCH_SIZE);
+        int scanned = 0;
+        int batches = 0;
+        int modified = 0;
 
-                        d.append("permissions", newNodes).remove("perms");
-                        c.replaceOne(new Document("_id", holder), d);
-                    }
+        try (MongoCursor<Document> cursor = findHoldersWithNode(c, constraints).iterator()) {
+            while (cursor.hasNext()) {
+                Document d = cursor.next();
+                scanned++;
+
+                Set<Node> nodes = new HashSet<>(nodesFromDoc(d));
+                Set<Node> results = nodes.stream()
+                        .map(bulkUpdate::apply)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toSet());
+
+                if (!nodes.equals(results)) {
+                    List<Document> newNodes = results.stream()
+                            .map(MongoStorage::nodeToDoc)
+                            .collect(Collectors.toList());
+
+                    batch.add(new UpdateOneModel<>(
+                            Filters.eq("_id", d.get("_id")),
+                            Updates.combine(update.apply(newNodes), Updates.unset("perms"))
+                    ));
+                }
+
+                if (batch.size() >= BULK_UPDATE_BATCH_SIZE) {
+                    modified += writeBulkUpdateBatch(c, collection, batch, ++batches, scanned);
+                    batch.clear();
                 }
             }
         }
+
+        if (!batch.isEmpty()) {
+            modified += writeBulkUpdateBatch(c, collection, batch, ++batches, scanned);
+        }
+
+        this.plugin.getLogger().info("[Bulk Update] Finished " + collection + ": " + scanned + " matching documents, " +
+                modified + " modified in " + batches + " batches (took " + (System.currentTimeMillis() - startTime) + "ms)");
+    }
+
+    private int writeBulkUpdateBatch(MongoCollection<Document> c, String collection, List<WriteModel<Document>> batch, int batchNumber, int scanned) {
+        long startTime = System.currentTimeMillis();
+        BulkWriteResult result = c.bulkWrite(batch, new BulkWriteOptions().ordered(false));
+
+        this.plugin.getLogger().info("[Bulk Update] Wrote " + collection + " batch #" + batchNumber + ": " +
+                result.getModifiedCount() + "/" + batch.size() + " modified in " + (System.currentTimeMillis() - startTime) + "ms" +
+                " (" + scanned + " documents scanned so far)");
+        return result.getModifiedCount();
     }
 
     @Override
@@ -351,7 +494,7 @@ public class MongoStorage implements StorageImplementation {
     public Set<UUID> getUniqueUsers() {
         Set<UUID> uuids = new HashSet<>();
         MongoCollection<Document> c = this.database.getCollection(this.prefix + "users");
-        try (MongoCursor<Document> cursor = c.find().iterator()) {
+        try (MongoCursor<Document> cursor = c.find().projection(Projections.include("_id")).iterator()) {
             while (cursor.hasNext()) {
                 try {
                     uuids.add(getDocumentId(cursor.next()));
@@ -367,7 +510,7 @@ public class MongoStorage implements StorageImplementation {
     public <N extends Node> List<NodeEntry<UUID, N>> searchUserNodes(ConstraintNodeMatcher<N> constraint) throws Exception {
         List<NodeEntry<UUID, N>> held = new ArrayList<>();
         MongoCollection<Document> c = this.database.getCollection(this.prefix + "users");
-        try (MongoCursor<Document> cursor = c.find().iterator()) {
+        try (MongoCursor<Document> cursor = findHoldersWithNode(c, constraint.getConstraint()).iterator()) {
             while (cursor.hasNext()) {
                 Document d = cursor.next();
                 UUID holder = getDocumentId(d);
@@ -451,6 +594,20 @@ public class MongoStorage implements StorageImplementation {
         this.plugin.getGroupManager().retainAll(groups);
     }
 
+    @Override
+    public Map<String, Long> getGroupVersions() {
+        Map<String, Long> versions = new HashMap<>();
+        MongoCollection<Document> c = this.database.getCollection(this.prefix + "groups");
+        try (MongoCursor<Document> cursor = c.find().projection(new Document("version", 1)).iterator()) {
+            while (cursor.hasNext()) {
+                Document d = cursor.next();
+                Object version = d.get("version");
+                versions.put(d.getString("_id"), version instanceof Number ? ((Number) version).longValue() : 0L);
+            }
+        }
+        return versions;
+    }
+
     @Override
     public void saveGroup(Group group) {
         group.getIoLock().lock();
@@ -477,7 +634,7 @@ public class MongoStorage implements StorageImplementation {
     public <N extends Node> List<NodeEntry<String, N>> searchGroupNodes(ConstraintNodeMatcher<N> constraint) throws Exception {
         List<NodeEntry<String, N>> held = new ArrayList<>();
         MongoCollection<Document> c = this.database.getCollection(this.prefix + "groups");
-        try (MongoCursor<Document> cursor = c.find().iterator()) {
+        try (MongoCursor<Document> cursor = findHoldersWithNode(c, constraint.getConstraint()).iterator()) {
             while (cursor.hasNext()) {
                 Document d = cursor.next();
                 String holder = d.getString("_id");
@@ -660,6 +817,81 @@ public class MongoStorage implements StorageImplementation {
                 .append("permissions", nodes);
     }
 
+    /**
+     * Finds the documents in the given collection which hold at least one node
+     * with a key satisfying all of the constraints.
+     *
+     * <p>The filter is evaluated by the server, so only matching documents
+     * (and only their permissions) are returned. Callers must still test each
+     * node against the constraints - the filter is a superset of the match.</p>
+     *
+     * @param c the collection
+     * @param constraints the constraints
+     * @return the documents
+     */
+    private static FindIterable<Document> findHoldersWithNode(MongoCollection<Document> c, List<Constraint> constraints) {
+        List<Bson> keyFilters = new ArrayList<>();
+        List<Bson> legacyKeyFilters = new ArrayList<>();
+        boolean caseInsensitive = false;
+
+        for (Constraint constraint : constraints) {
+            Comparison comparison = constraint.getComparison();
+            Bson keyFilter = nodeKeyFilter(comparison, constraint.getExpressionValue(), "key");
+            if (keyFilter == null) {
+                // unknown comparison - can't be translated, so leave it out
+                continue;
+            }
+
+            keyFilters.add(keyFilter);
+            legacyKeyFilters.add(nodeKeyFilter(comparison, constraint.getExpressionValue(), "permission"));
+
+            if (comparison == StandardComparison.EQUAL || comparison == StandardComparison.NOT_EQUAL) {
+                caseInsensitive = true;
+            }
+        }
+
+        FindIterable<Document> find;
+        if (keyFilters.isEmpty()) {
+            find = c.find();
+        } else {
+            // mirror #nodeFromDoc - the legacy "permission" field takes precedence over "key"
+            find = c.find(Filters.elemMatch("permissions", Filters.or(
+                    Filters.and(Filters.exists("permission", false), Filters.and(keyFilters)),
+                    Filters.and(Filters.exists("permission"), Filters.and(legacyKeyFilters))
+            )));
+        }
+
+        find = find.projection(Projections.include("permissions"));
+        if (caseInsensitive) {
+            // equality comparisons ignore case, and can use the index when it does too
+            find = find.collation(CASE_INSENSITIVE);
+        }
+        return find;
+    }
+
+    private static FindIterable<Document> findHoldersWithNode(MongoCollection<Document> c, Constraint constraint) {
+        return findHoldersWithNode(c, Collections.singletonList(constraint));
+    }
+
+    private static Bson nodeKeyFilter(Comparison comparison, String expression, String field) {
+        if (comparison == StandardComparison.EQUAL) {
+            return Filters.eq(field, expression);
+        } else if (comparison == StandardComparison.NOT_EQUAL) {
+            return Filters.ne(field, expression);
+        } else if (comparison == StandardComparison.SIMILAR) {
+            return Filters.regex(field, likeRegex(expression));
+        } else if (comparison == StandardComparison.NOT_SIMILAR) {
+            return Filters.not(Filters.regex(field, likeRegex(expression)));
+        } else {
+            return null;
+        }
+    }
+
+    private static String likeRegex(String expression) {
+        // mongo regexes aren't implicitly anchored like Matcher#matches
+        return "^(?:" + StandardComparison.convertLikeSyntaxToRegex(expression) + ")$";
+    }
+
     private static List<Node> nodesFromDoc(Document document) {
         List<Node> nodes = new ArrayList<>();
         if (document.containsKey("permissions") && document.get("permissions") instanceof List) {
@@ -677,7 +909,12 @@ public class MongoStorage implements StorageImplementation {
                 .map(MongoStorage::nodeToDoc)
                 .collect(Collectors.toList());
 
-        return new Document("_id", group.getName()).append("permissions", nodes);
+        return new Document("_id", group.getName()).append("permissions", nodes).append("version", newGroupVersion());
+    }
+
+    private static long newGroupVersion() {
+        // documents are replaced rather than updated, so use a random value instead of a counter
+        return ThreadLocalRandom.current().nextLong();
     }
 
     private static Document trackToDoc(Track track) {
@@ -27,7 +27,9 @@ package me.lucko.luckperms.common.storage.implementation.split;
 
 import com.google.common.collect.ImmutableMap;
 
+import me.lucko.luckperms.common.actionlog.ActionFilter;
 import me.lucko.luckperms.common.actionlog.Log;
+import me.lucko.luckperms.common.actionlog.LogPage;
 import me.lucko.luckperms.common.bulkupdate.BulkUpdate;
 import me.lucko.luckperms.common.model.Group;
 import me.lucko.luckperms.common.model.Track;
@@ -37,11 +39,15 @@ import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.storage.StorageType;
 import me.lucko.luckperms.common.storage.implementation.StorageImplementation;
 import me.lucko.luckperms.common.storage.misc.NodeEntry;
+import me.lucko.luckperms.common.util.PageParameters;
 
 import net.luckperms.api.actionlog.Action;
 import net.luckperms.api.model.PlayerSaveResult;
 import net.luckperms.api.node.Node;
 
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -125,6 +131,11 @@ public class SplitStorage implements StorageImplementation {
         return implFor(SplitStorageType.LOG).getLog();
     }
 
+    @Override
+    public LogPage getLogPage(ActionFilter filter, @Nullable PageParameters page) throws Exception {
+        return implFor(SplitStorageType.LOG).getLogPage(filter, page);
+    }
+
     @Override
     public void applyBulkUpdate(BulkUpdate bulkUpdate) throws Exception {
         StorageType userType = this.types.get(SplitStorageType.USER);
@@ -148,6 +159,11 @@ public class SplitStorage implements StorageImplementation {
         implFor(SplitStorageType.USER).saveUser(user);
     }
 
+    @Override
+    public void saveUsers(Collection<User> users) throws Exception {
+        implFor(SplitStorageType.USER).saveUsers(users);
+    }
+
     @Override
     public Set<UUID> getUniqueUsers() throws Exception {
         return implFor(SplitStorageType.USER).getUniqueUsers();
@@ -173,11 +189,21 @@ public class SplitStorage implements StorageImplementation {
         implFor(SplitStorageType.GROUP).loadAllGroups();
     }
 
+    @Override
+    public Map<String, Long> getGroupVersions() throws Exception {
+        return implFor(SplitStorageType.GROUP).getGroupVersions();
+    }
+
     @Override
     public void saveGroup(Group group) throws Exception {
         implFor(SplitStorageType.GROUP).saveGroup(group);
     }
 
+    @Override
+    public void saveGroups(Collection<Group> groups) throws Exception {
+        implFor(SplitStorageType.GROUP).saveGroups(groups);
+    }
+
     @Override
     public void deleteGroup(Group group) throws Exception {
         implFor(SplitStorageType.GROUP).deleteGroup(group);
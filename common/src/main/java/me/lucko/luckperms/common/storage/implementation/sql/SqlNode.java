@@ -139,6 +139,10 @@ public final class SqlNode {
         return this.contexts;
     }
 
+    public boolean hasSqlId() {
+        return this.sqlId != NULL_ID;
+    }
+
     public long getSqlId() {
         if (this.sqlId == NULL_ID) {
             throw new IllegalStateException("sql id not set");
@@ -25,15 +25,19 @@
 
 package me.lucko.luckperms.common.storage.implementation.sql;
 
+import com.github.benmanes.caffeine.cache.Cache;
 import com.google.common.collect.ImmutableMap;
 import com.google.gson.reflect.TypeToken;
 
+import me.lucko.luckperms.common.actionlog.ActionFilter;
 import me.lucko.luckperms.common.actionlog.Log;
+import me.lucko.luckperms.common.actionlog.LogPage;
 import me.lucko.luckperms.common.actionlog.LoggedAction;
 import me.lucko.luckperms.common.bulkupdate.BulkUpdate;
 import me.lucko.luckperms.common.bulkupdate.PreparedStatementBuilder;
 import me.lucko.luckperms.common.context.ContextSetJsonSerializer;
 import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.model.PermissionHolder;
 import me.lucko.luckperms.common.model.Track;
 import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.model.manager.group.GroupManager;
@@ -43,6 +47,8 @@ import me.lucko.luckperms.common.storage.implementation.StorageImplementation;
 import me.lucko.luckperms.common.storage.implementation.sql.connection.ConnectionFactory;
 import me.lucko.luckperms.common.storage.misc.NodeEntry;
 import me.lucko.luckperms.common.storage.misc.PlayerSaveResultImpl;
+import me.lucko.luckperms.common.util.CaffeineFactory;
+import me.lucko.luckperms.common.util.PageParameters;
 import me.lucko.luckperms.common.util.Uuids;
 import me.lucko.luckperms.common.util.gson.GsonProvider;
 
@@ -51,11 +57,14 @@ import net.luckperms.api.model.PlayerSaveResult;
 import net.luckperms.api.model.data.DataType;
 import net.luckperms.api.node.Node;
 
+import org.checkerframework.checker.nullness.qual.Nullable;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Type;
 import java.sql.BatchUpdateException;
 import java.sql.Connection;
+import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -63,6 +72,7 @@ import java.sql.Statement;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -77,7 +87,9 @@ public class SqlStorage implements StorageImplementation {
     private static final Type LIST_STRING_TYPE = new TypeToken<List<String>>(){}.getType();
 
     private static final String USER_PERMISSIONS_SELECT = "SELECT id, permission, value, server, world, expiry, contexts FROM '{prefix}user_permissions' WHERE uuid=?";
+    private static final String USER_PERMISSIONS_SELECT_WITH_PLAYER = "SELECT p.username, p.primary_group, up.id, up.permission, up.value, up.server, up.world, up.expiry, up.contexts FROM '{prefix}players' p LEFT JOIN '{prefix}user_permissions' up ON up.uuid = p.uuid WHERE p.uuid=?";
     private static final String USER_PERMISSIONS_DELETE_SPECIFIC = "DELETE FROM '{prefix}user_permissions' WHERE id=?";
+    private static final String USER_PERMISSIONS_DELETE_MATCHING = "DELETE FROM '{prefix}user_permissions' WHERE uuid=? AND permission=? AND value=? AND server=? AND world=? AND expiry=? AND contexts=?";
     private static final String USER_PERMISSIONS_DELETE = "DELETE FROM '{prefix}user_permissions' WHERE uuid=?";
     private static final String USER_PERMISSIONS_INSERT = "INSERT INTO '{prefix}user_permissions' (uuid, permission, value, server, world, expiry, contexts) VALUES(?, ?, ?, ?, ?, ?, ?)";
     private static final String USER_PERMISSIONS_SELECT_DISTINCT = "SELECT DISTINCT uuid FROM '{prefix}user_permissions'";
@@ -90,12 +102,18 @@ public class SqlStorage implements StorageImplementation {
     private static final String PLAYER_SELECT_ALL_UUIDS_BY_USERNAME = "SELECT uuid FROM '{prefix}players' WHERE username=? AND NOT uuid=?";
     private static final String PLAYER_DELETE_ALL_UUIDS_BY_USERNAME = "DELETE FROM '{prefix}players' WHERE username=? AND NOT uuid=?";
     private static final String PLAYER_SELECT_BY_UUID = "SELECT username, primary_group FROM '{prefix}players' WHERE uuid=?";
-    private static final String PLAYER_SELECT_PRIMARY_GROUP_BY_UUID = "SELECT primary_group FROM '{prefix}players' WHERE uuid=? LIMIT 1";
     private static final String PLAYER_UPDATE_PRIMARY_GROUP_BY_UUID = "UPDATE '{prefix}players' SET primary_group=? WHERE uuid=?";
+    private static final Map<String, String> PLAYER_UPSERT = ImmutableMap.of(
+            "H2", "MERGE INTO '{prefix}players' p USING (SELECT ? AS uuid, ? AS username, ? AS primary_group) v ON p.uuid = v.uuid WHEN MATCHED THEN UPDATE SET primary_group = v.primary_group WHEN NOT MATCHED THEN INSERT (uuid, username, primary_group) VALUES(v.uuid, v.username, v.primary_group)",
+            "SQLite", "INSERT INTO '{prefix}players' (uuid, username, primary_group) VALUES(?, ?, ?) ON CONFLICT (uuid) DO UPDATE SET primary_group=excluded.primary_group",
+            "PostgreSQL", "INSERT INTO '{prefix}players' (uuid, username, primary_group) VALUES(?, ?, ?) ON CONFLICT (uuid) DO UPDATE SET primary_group=EXCLUDED.primary_group"
+    );
+    private static final String PLAYER_UPSERT_DEFAULT = "INSERT INTO '{prefix}players' (uuid, username, primary_group) VALUES(?, ?, ?) ON DUPLICATE KEY UPDATE primary_group=VALUES(primary_group)";
 
     private static final String GROUP_PERMISSIONS_SELECT = "SELECT id, permission, value, server, world, expiry, contexts FROM '{prefix}group_permissions' WHERE name=?";
     private static final String GROUP_PERMISSIONS_SELECT_ALL = "SELECT name, id, permission, value, server, world, expiry, contexts FROM '{prefix}group_permissions'";
     private static final String GROUP_PERMISSIONS_DELETE_SPECIFIC = "DELETE FROM '{prefix}group_permissions' WHERE id=?";
+    private static final String GROUP_PERMISSIONS_DELETE_MATCHING = "DELETE FROM '{prefix}group_permissions' WHERE name=? AND permission=? AND value=? AND server=? AND world=? AND expiry=? AND contexts=?";
     private static final String GROUP_PERMISSIONS_DELETE = "DELETE FROM '{prefix}group_permissions' WHERE name=?";
     private static final String GROUP_PERMISSIONS_INSERT = "INSERT INTO '{prefix}group_permissions' (name, permission, value, server, world, expiry, contexts) VALUES(?, ?, ?, ?, ?, ?, ?)";
     private static final String GROUP_PERMISSIONS_SELECT_PERMISSION = "SELECT name, id, permission, value, server, world, expiry, contexts FROM '{prefix}group_permissions' WHERE ";
@@ -108,6 +126,10 @@ public class SqlStorage implements StorageImplementation {
     );
     private static final String GROUP_INSERT_DEFAULT = "INSERT INTO '{prefix}groups' (name) VALUES(?) ON DUPLICATE KEY UPDATE name=name";
     private static final String GROUP_DELETE = "DELETE FROM '{prefix}groups' WHERE name=?";
+    private static final String GROUP_SELECT_ALL_VERSIONS = "SELECT name, version FROM '{prefix}groups'";
+    private static final String GROUP_INCREMENT_VERSION = "UPDATE '{prefix}groups' SET version = version + 1 WHERE name=?";
+    private static final String GROUP_INCREMENT_ALL_VERSIONS = "UPDATE '{prefix}groups' SET version = version + 1";
+    private static final String GROUP_ADD_VERSION_COLUMN = "ALTER TABLE '{prefix}groups' ADD COLUMN version BIGINT NOT NULL DEFAULT 0";
 
     private static final String TRACK_INSERT = "INSERT INTO '{prefix}tracks' (name, 'groups') VALUES(?, ?)";
     private static final String TRACK_SELECT = "SELECT 'groups' FROM '{prefix}tracks' WHERE name=?";
@@ -117,12 +139,19 @@ public class SqlStorage implements StorageImplementation {
 
     private static final String ACTION_INSERT = "INSERT INTO '{prefix}actions' (time, actor_uuid, actor_name, type, acted_uuid, acted_name, action) VALUES(?, ?, ?, ?, ?, ?, ?)";
     private static final String ACTION_SELECT_ALL = "SELECT * FROM '{prefix}actions'";
+    private static final String ACTION_COUNT = "SELECT COUNT(*) FROM '{prefix}actions'";
+    private static final String ACTION_ORDER_PAGE = " ORDER BY time DESC, id DESC LIMIT ? OFFSET ?";
+    private static final String ACTION_ORDER = " ORDER BY time DESC, id DESC";
 
     private final LuckPermsPlugin plugin;
     
     private final ConnectionFactory connectionFactory;
     private final Function<String, String> statementProcessor;
 
+    // the nodes known to be in the database for each holder, as of their last load or save.
+    // used to work out what needs to change when saving without re-reading the holder's data
+    private final Cache<PermissionHolder, Set<SqlNode>> storedNodes = CaffeineFactory.newBuilder().weakKeys().build();
+
     public SqlStorage(LuckPermsPlugin plugin, ConnectionFactory connectionFactory, String tablePrefix) {
         this.plugin = plugin;
         this.connectionFactory = connectionFactory;
@@ -158,22 +187,72 @@ public class SqlStorage implements StorageImplementation {
 
         if (!tableExists) {
             applySchema();
+        } else {
+            addGroupVersionColumn();
+            addActionIndexes();
         }
     }
 
-    private void applySchema() throws IOException, SQLException {
-        List<String> statements;
+    /**
+     * Adds the group version column to tables created before it was introduced.
+     *
+     * @throws SQLException if the column couldn't be added
+     */
+    private void addGroupVersionColumn() throws SQLException {
+        try (Connection c = this.connectionFactory.getConnection()) {
+            try (Statement s = c.createStatement()) {
+                s.executeQuery(this.statementProcessor.apply(GROUP_SELECT_ALL_VERSIONS)).close();
+                return;
+            } catch (SQLException e) {
+                // the column doesn't exist yet
+            }
+
+            try (Statement s = c.createStatement()) {
+                s.execute(this.statementProcessor.apply(GROUP_ADD_VERSION_COLUMN));
+            }
+        }
+    }
 
+    /**
+     * Adds the indexes on the actions table to tables created before they were introduced.
+     *
+     * @throws IOException if the schema couldn't be read
+     * @throws SQLException if the indexes couldn't be created
+     */
+    private void addActionIndexes() throws IOException, SQLException {
+        String table = this.statementProcessor.apply("{prefix}actions");
+        try (Connection c = this.connectionFactory.getConnection()) {
+            if (indexExists(c, table, table + "_time")) {
+                return;
+            }
+
+            List<String> statements = readSchema().stream()
+                    .filter(statement -> statement.startsWith("CREATE INDEX") && statement.contains(table + "_"))
+                    .collect(Collectors.toList());
+
+            try (Statement s = c.createStatement()) {
+                for (String statement : statements) {
+                    s.execute(statement);
+                }
+            }
+        }
+    }
+
+    private List<String> readSchema() throws IOException {
         String schemaFileName = "me/lucko/luckperms/schema/" + this.connectionFactory.getImplementationName().toLowerCase() + ".sql";
         try (InputStream is = this.plugin.getBootstrap().getResourceStream(schemaFileName)) {
             if (is == null) {
                 throw new IOException("Couldn't locate schema file for " + this.connectionFactory.getImplementationName());
             }
 
-            statements = SchemaReader.getStatements(is).stream()
+            return SchemaReader.getStatements(is).stream()
                     .map(this.statementProcessor)
                     .collect(Collectors.toList());
         }
+    }
+
+    private void applySchema() throws IOException, SQLException {
+        List<String> statements = readSchema();
 
         try (Connection connection = this.connectionFactory.getConnection()) {
             boolean utf8mb4Unsupported = false;
@@ -246,6 +325,88 @@ public class SqlStorage implements StorageImplementation {
         return log.build();
     }
 
+    @Override
+    public LogPage getLogPage(ActionFilter filter, @Nullable PageParameters page) throws SQLException {
+        List<LoggedAction> content = new ArrayList<>();
+        int totalEntries = 0;
+
+        try (Connection c = this.connectionFactory.getConnection()) {
+            if (page != null) {
+                PreparedStatementBuilder count = appendActionFilter(new PreparedStatementBuilder().append(ACTION_COUNT), filter);
+                try (PreparedStatement ps = count.build(c, this.statementProcessor)) {
+                    try (ResultSet rs = ps.executeQuery()) {
+                        totalEntries = rs.next() ? rs.getInt(1) : 0;
+                    }
+                }
+
+                if (totalEntries <= page.getOffset()) {
+                    return LogPage.of(content, page, totalEntries);
+                }
+            }
+
+            PreparedStatementBuilder select = appendActionFilter(new PreparedStatementBuilder().append(ACTION_SELECT_ALL), filter);
+            if (page != null) {
+                select.append(ACTION_ORDER_PAGE).variable(page.getPageSize()).variable(page.getOffset());
+            } else {
+                select.append(ACTION_ORDER);
+            }
+
+            try (PreparedStatement ps = select.build(c, this.statementProcessor)) {
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        content.add(readAction(rs));
+                    }
+                }
+            }
+        }
+
+        if (page == null) {
+            totalEntries = content.size();
+        }
+        return LogPage.of(content, page, totalEntries);
+    }
+
+    private static PreparedStatementBuilder appendActionFilter(PreparedStatementBuilder builder, ActionFilter filter) {
+        List<String> conditions = new ArrayList<>();
+        if (filter.getSourceUniqueId() != null) {
+            conditions.add("actor_uuid = ?");
+            builder.variable(filter.getSourceUniqueId().toString());
+        }
+        if (filter.getTargetType() != null) {
+            conditions.add("type = ?");
+            builder.variable(Character.toString(LoggedAction.getTypeCharacter(filter.getTargetType())));
+        }
+        if (filter.getTargetUniqueId() != null) {
+            conditions.add("acted_uuid = ?");
+            builder.variable(filter.getTargetUniqueId().toString());
+        }
+        if (filter.getTargetName() != null) {
+            conditions.add("acted_name = ?");
+            builder.variable(filter.getTargetName());
+        }
+        if (filter.getAfter() != null) {
+            conditions.add("time >= ?");
+            builder.variable(filter.getAfter().getEpochSecond());
+        }
+        if (filter.getBefore() != null) {
+            conditions.add("time < ?");
+            builder.variable(filter.getBefore().getEpochSecond());
+        }
+        if (filter.getSearch() != null) {
+            // the escape character is passed as a variable, the statement processor would replace a quoted literal
+            String pattern = "%" + filter.getSearch().replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+            conditions.add("(LOWER(actor_name) LIKE ? ESCAPE ? OR LOWER(acted_name) LIKE ? ESCAPE ? OR LOWER(action) LIKE ? ESCAPE ?)");
+            for (int i = 0; i < 3; i++) {
+                builder.variable(pattern).variable("!");
+            }
+        }
+
+        if (!conditions.isEmpty()) {
+            builder.append(" WHERE " + String.join(" AND ", conditions));
+        }
+        return builder;
+    }
+
     @Override
     public void applyBulkUpdate(BulkUpdate bulkUpdate) throws SQLException {
         try (Connection c = this.connectionFactory.getConnection()) {
@@ -261,6 +422,9 @@ public class SqlStorage implements StorageImplementation {
                 try (PreparedStatement ps = bulkUpdate.buildAsSql().build(c, q -> q.replace("{table}", table))) {
                     ps.execute();
                 }
+                try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(GROUP_INCREMENT_ALL_VERSIONS))) {
+                    ps.execute();
+                }
             }
         }
     }
@@ -275,15 +439,17 @@ public class SqlStorage implements StorageImplementation {
             String savedUsername = null;
 
             try (Connection c = this.connectionFactory.getConnection()) {
-                nodes = selectUserPermissions(new ArrayList<>(), c, user.getUniqueId());
+                nodes = new ArrayList<>();
 
-                SqlPlayerData playerData = selectPlayerData(c, user.getUniqueId());
+                SqlPlayerData playerData = selectUserData(nodes, c, user.getUniqueId());
                 if (playerData != null) {
                     primaryGroup = playerData.primaryGroup;
                     savedUsername = playerData.username;
                 }
             }
 
+            this.storedNodes.put(user, new HashSet<>(nodes));
+
             // update username & primary group
             if (primaryGroup == null) {
                 primaryGroup = GroupManager.DEFAULT_GROUP_NAME;
@@ -317,31 +483,53 @@ public class SqlStorage implements StorageImplementation {
 
     @Override
     public void saveUser(User user) throws SQLException {
+        try (Connection c = this.connectionFactory.getConnection()) {
+            saveUser(c, user);
+        }
+    }
+
+    @Override
+    public void saveUsers(Collection<User> users) throws SQLException {
+        // share one connection between all of the saves
+        try (Connection c = this.connectionFactory.getConnection()) {
+            for (User user : users) {
+                saveUser(c, user);
+            }
+        }
+    }
+
+    private void saveUser(Connection c, User user) throws SQLException {
         user.getIoLock().lock();
         try {
             if (!this.plugin.getUserManager().shouldSave(user)) {
-                try (Connection c = this.connectionFactory.getConnection()) {
-                    deleteUser(c, user.getUniqueId());
-                }
+                this.storedNodes.invalidate(user);
+                deleteUser(c, user.getUniqueId());
+                this.storedNodes.put(user, Collections.emptySet());
                 return;
             }
 
-            Set<SqlNode> remote;
-            try (Connection c = this.connectionFactory.getConnection()) {
+            Set<SqlNode> remote = this.storedNodes.getIfPresent(user);
+            this.storedNodes.invalidate(user);
+
+            Set<SqlNode> local = user.normalData().asList().stream().map(SqlNode::fromNode).collect(Collectors.toSet());
+            SqlPlayerData playerData = new SqlPlayerData(
+                    user.getPrimaryGroup().getStoredValue().orElse(GroupManager.DEFAULT_GROUP_NAME),
+                    user.getUsername().orElse("null").toLowerCase()
+            );
+
+            if (remote == null) {
                 remote = selectUserPermissions(new HashSet<>(), c, user.getUniqueId());
             }
 
-            Set<SqlNode> local = user.normalData().asList().stream().map(SqlNode::fromNode).collect(Collectors.toSet());
             Set<SqlNode> missingFromRemote = getMissingFromRemote(local, remote);
             Set<SqlNode> missingFromLocal = getMissingFromLocal(local, remote);
 
-            try (Connection c = this.connectionFactory.getConnection()) {
+            runInTransaction(c, () -> {
                 updateUserPermissions(c, user.getUniqueId(), missingFromRemote, missingFromLocal);
-                insertPlayerData(c, user.getUniqueId(), new SqlPlayerData(
-                        user.getPrimaryGroup().getStoredValue().orElse(GroupManager.DEFAULT_GROUP_NAME),
-                        user.getUsername().orElse("null").toLowerCase()
-                ));
-            }
+                upsertPlayerData(c, user.getUniqueId(), playerData);
+            });
+
+            this.storedNodes.put(user, applyChanges(remote, missingFromRemote, missingFromLocal));
         } finally {
             user.getIoLock().unlock();
         }
@@ -422,6 +610,8 @@ public class SqlStorage implements StorageImplementation {
                 nodes = selectGroupPermissions(new ArrayList<>(), c, group.getName());
             }
 
+            this.storedNodes.put(group, new HashSet<>(nodes));
+
             if (!nodes.isEmpty()) {
                 group.setNodes(DataType.NORMAL, nodes.stream().map(SqlNode::toNode));
             } else {
@@ -446,6 +636,8 @@ public class SqlStorage implements StorageImplementation {
             group.getIoLock().lock();
             try {
                 Collection<SqlNode> nodes = entry.getValue();
+                this.storedNodes.put(group, new HashSet<>(nodes));
+
                 if (!nodes.isEmpty()) {
                     group.setNodes(DataType.NORMAL, nodes.stream().map(SqlNode::toNode));
                 } else {
@@ -459,31 +651,80 @@ public class SqlStorage implements StorageImplementation {
         this.plugin.getGroupManager().retainAll(groups.keySet());
     }
 
+    @Override
+    public Map<String, Long> getGroupVersions() throws SQLException {
+        Map<String, Long> versions = new HashMap<>();
+        try (Connection c = this.connectionFactory.getConnection()) {
+            try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(GROUP_SELECT_ALL_VERSIONS))) {
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        versions.put(rs.getString("name").toLowerCase(), rs.getLong("version"));
+                    }
+                }
+            }
+        }
+        return versions;
+    }
+
     @Override
     public void saveGroup(Group group) throws SQLException {
+        try (Connection c = this.connectionFactory.getConnection()) {
+            saveGroup(c, group);
+        }
+    }
+
+    @Override
+    public void saveGroups(Collection<Group> groups) throws SQLException {
+        // share one connection between all of the saves
+        try (Connection c = this.connectionFactory.getConnection()) {
+            for (Group group : groups) {
+                saveGroup(c, group);
+            }
+        }
+    }
+
+    private void saveGroup(Connection c, Group group) throws SQLException {
         group.getIoLock().lock();
         try {
+            Set<SqlNode> remote = this.storedNodes.getIfPresent(group);
+
             if (group.normalData().isEmpty()) {
-                try (Connection c = this.connectionFactory.getConnection()) {
-                    deleteGroupPermissions(c, group.getName());
+                if (remote != null && remote.isEmpty()) {
+                    return;
                 }
+
+                this.storedNodes.invalidate(group);
+                runInTransaction(c, () -> {
+                    deleteGroupPermissions(c, group.getName());
+                    incrementGroupVersion(c, group.getName());
+                });
+                this.storedNodes.put(group, Collections.emptySet());
                 return;
             }
 
-            Set<SqlNode> remote;
-            try (Connection c = this.connectionFactory.getConnection()) {
+            Set<SqlNode> local = group.normalData().asList().stream().map(SqlNode::fromNode).collect(Collectors.toSet());
+
+            if (remote != null && remote.equals(local)) {
+                // nothing has changed since the group was last loaded/saved
+                return;
+            }
+            this.storedNodes.invalidate(group);
+
+            if (remote == null) {
                 remote = selectGroupPermissions(new HashSet<>(), c, group.getName());
             }
 
-            Set<SqlNode> local = group.normalData().asList().stream().map(SqlNode::fromNode).collect(Collectors.toSet());
             Set<SqlNode> missingFromRemote = getMissingFromRemote(local, remote);
             Set<SqlNode> missingFromLocal = getMissingFromLocal(local, remote);
 
             if (!missingFromLocal.isEmpty() || !missingFromRemote.isEmpty()) {
-                try (Connection c = this.connectionFactory.getConnection()) {
+                runInTransaction(c, () -> {
                     updateGroupPermissions(c, group.getName(), missingFromRemote, missingFromLocal);
-                }
+                    incrementGroupVersion(c, group.getName());
+                });
             }
+
+            this.storedNodes.put(group, applyChanges(remote, missingFromRemote, missingFromLocal));
         } finally {
             group.getIoLock().unlock();
         }
@@ -493,6 +734,7 @@ public class SqlStorage implements StorageImplementation {
     public void deleteGroup(Group group) throws SQLException {
         group.getIoLock().lock();
         try {
+            this.storedNodes.invalidate(group);
             try (Connection c = this.connectionFactory.getConnection()) {
                 deleteGroupPermissions(c, group.getName());
 
@@ -776,29 +1018,75 @@ public class SqlStorage implements StorageImplementation {
         return missingFromLocal;
     }
 
-    private <T extends Collection<SqlNode>> T selectUserPermissions(T nodes, Connection c, UUID user) throws SQLException {
-        try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(USER_PERMISSIONS_SELECT))) {
+    private static Set<SqlNode> applyChanges(Set<SqlNode> remote, Set<SqlNode> added, Set<SqlNode> removed) {
+        Set<SqlNode> result = new HashSet<>(remote);
+        result.removeAll(removed);
+        result.addAll(added);
+        return result;
+    }
+
+    /**
+     * Runs the given action as a single transaction on the connection, if the
+     * connection factory supports it.
+     *
+     * @param c the connection
+     * @param action the action
+     * @throws SQLException if the action throws an exception
+     */
+    private void runInTransaction(Connection c, SqlAction action) throws SQLException {
+        if (!this.connectionFactory.hasExclusiveConnections()) {
+            action.run();
+            return;
+        }
+
+        boolean autoCommit = c.getAutoCommit();
+        c.setAutoCommit(false);
+        try {
+            action.run();
+            c.commit();
+        } catch (SQLException | RuntimeException e) {
+            c.rollback();
+            throw e;
+        } finally {
+            c.setAutoCommit(autoCommit);
+        }
+    }
+
+    private SqlPlayerData selectUserData(Collection<SqlNode> nodes, Connection c, UUID user) throws SQLException {
+        SqlPlayerData playerData = null;
+        try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(USER_PERMISSIONS_SELECT_WITH_PLAYER))) {
             ps.setString(1, user.toString());
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
-                    nodes.add(readNode(rs));
+                    if (playerData == null) {
+                        playerData = new SqlPlayerData(rs.getString("primary_group"), rs.getString("username"));
+                    }
+
+                    // permission columns are null if the user has no permission rows
+                    if (rs.getString("permission") != null) {
+                        nodes.add(readNode(rs));
+                    }
                 }
             }
         }
-        return nodes;
+
+        if (playerData == null) {
+            // no player data has been saved, but there might still be permission data
+            selectUserPermissions(nodes, c, user);
+        }
+        return playerData;
     }
 
-    private SqlPlayerData selectPlayerData(Connection c, UUID user) throws SQLException {
-        try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(PLAYER_SELECT_BY_UUID))) {
+    private <T extends Collection<SqlNode>> T selectUserPermissions(T nodes, Connection c, UUID user) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(USER_PERMISSIONS_SELECT))) {
             ps.setString(1, user.toString());
             try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    return new SqlPlayerData(rs.getString("primary_group"), rs.getString("username"));
-                } else {
-                    return null;
+                while (rs.next()) {
+                    nodes.add(readNode(rs));
                 }
             }
         }
+        return nodes;
     }
 
     private void deleteUser(Connection c, UUID user) throws SQLException {
@@ -815,13 +1103,7 @@ public class SqlStorage implements StorageImplementation {
 
     private void updateUserPermissions(Connection c, UUID user, Set<SqlNode> add, Set<SqlNode> delete) throws SQLException {
         if (!delete.isEmpty()) {
-            try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(USER_PERMISSIONS_DELETE_SPECIFIC))) {
-                for (SqlNode node : delete) {
-                    ps.setLong(1, node.getSqlId());
-                    ps.addBatch();
-                }
-                ps.executeBatch();
-            }
+            deletePermissions(c, USER_PERMISSIONS_DELETE_SPECIFIC, USER_PERMISSIONS_DELETE_MATCHING, user.toString(), delete);
         }
         if (!add.isEmpty()) {
             try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(USER_PERMISSIONS_INSERT))) {
@@ -835,30 +1117,13 @@ public class SqlStorage implements StorageImplementation {
         }
     }
 
-    private void insertPlayerData(Connection c, UUID user, SqlPlayerData data) throws SQLException {
-        boolean hasPrimaryGroupSaved;
-        try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(PLAYER_SELECT_PRIMARY_GROUP_BY_UUID))) {
+    private void upsertPlayerData(Connection c, UUID user, SqlPlayerData data) throws SQLException {
+        String query = PLAYER_UPSERT.getOrDefault(this.connectionFactory.getImplementationName(), PLAYER_UPSERT_DEFAULT);
+        try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(query))) {
             ps.setString(1, user.toString());
-            try (ResultSet rs = ps.executeQuery()) {
-                hasPrimaryGroupSaved = rs.next();
-            }
-        }
-
-        if (hasPrimaryGroupSaved) {
-            // update
-            try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(PLAYER_UPDATE_PRIMARY_GROUP_BY_UUID))) {
-                ps.setString(1, data.primaryGroup);
-                ps.setString(2, user.toString());
-                ps.execute();
-            }
-        } else {
-            // insert
-            try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(PLAYER_INSERT))) {
-                ps.setString(1, user.toString());
-                ps.setString(2, data.username);
-                ps.setString(3, data.primaryGroup);
-                ps.execute();
-            }
+            ps.setString(2, data.username);
+            ps.setString(3, data.primaryGroup);
+            ps.execute();
         }
     }
 
@@ -907,20 +1172,52 @@ public class SqlStorage implements StorageImplementation {
         }
     }
 
+    private void incrementGroupVersion(Connection c, String group) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(GROUP_INCREMENT_VERSION))) {
+            ps.setString(1, group);
+            ps.execute();
+        }
+    }
+
     private void updateGroupPermissions(Connection c, String group, Set<SqlNode> add, Set<SqlNode> delete) throws SQLException {
         if (!delete.isEmpty()) {
-            try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(GROUP_PERMISSIONS_DELETE_SPECIFIC))) {
-                for (SqlNode node : delete) {
+            deletePermissions(c, GROUP_PERMISSIONS_DELETE_SPECIFIC, GROUP_PERMISSIONS_DELETE_MATCHING, group, delete);
+        }
+        if (!add.isEmpty()) {
+            try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(GROUP_PERMISSIONS_INSERT))) {
+                for (SqlNode node : add) {
+                    ps.setString(1, group);
+                    writeNode(node, ps);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+    }
+
+    private void deletePermissions(Connection c, String deleteById, String deleteMatching, String holder, Set<SqlNode> delete) throws SQLException {
+        List<SqlNode> withoutId = new ArrayList<>();
+        try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(deleteById))) {
+            int batchSize = 0;
+            for (SqlNode node : delete) {
+                if (node.hasSqlId()) {
                     ps.setLong(1, node.getSqlId());
                     ps.addBatch();
+                    batchSize++;
+                } else {
+                    withoutId.add(node);
                 }
+            }
+            if (batchSize != 0) {
                 ps.executeBatch();
             }
         }
-        if (!add.isEmpty()) {
-            try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(GROUP_PERMISSIONS_INSERT))) {
-                for (SqlNode node : add) {
-                    ps.setString(1, group);
+
+        // nodes inserted since the holder was last loaded don't have an id, so match on the row contents instead
+        if (!withoutId.isEmpty()) {
+            try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(deleteMatching))) {
+                for (SqlNode node : withoutId) {
+                    ps.setString(1, holder);
                     writeNode(node, ps);
                     ps.addBatch();
                 }
@@ -974,6 +1271,27 @@ public class SqlStorage implements StorageImplementation {
         return tracks;
     }
 
+    private static boolean indexExists(Connection connection, String table, String index) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        try (ResultSet tables = metaData.getTables(null, null, "%", null)) {
+            while (tables.next()) {
+                if (!tables.getString(3).equalsIgnoreCase(table)) {
+                    continue;
+                }
+
+                try (ResultSet rs = metaData.getIndexInfo(tables.getString(1), tables.getString(2), tables.getString(3), false, true)) {
+                    while (rs.next()) {
+                        String name = rs.getString("INDEX_NAME");
+                        if (name != null && name.equalsIgnoreCase(index)) {
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        }
+    }
+
     private static boolean tableExists(Connection connection, String table) throws SQLException {
         try (ResultSet rs = connection.getMetaData().getTables(null, null, "%", null)) {
             while (rs.next()) {
@@ -985,6 +1303,11 @@ public class SqlStorage implements StorageImplementation {
         }
     }
 
+    @FunctionalInterface
+    private interface SqlAction {
+        void run() throws SQLException;
+    }
+
     private static final class SqlPlayerData {
         private final String primaryGroup;
         private final String username;
@@ -47,6 +47,16 @@ public interface ConnectionFactory {
 
     Function<String, String> getStatementProcessor();
 
+    /**
+     * Gets if connections returned by this factory are used exclusively by the
+     * caller until they are closed, and can therefore be used to run transactions.
+     *
+     * @return if connections are exclusive
+     */
+    default boolean hasExclusiveConnections() {
+        return true;
+    }
+
     Connection getConnection() throws SQLException;
 
 }
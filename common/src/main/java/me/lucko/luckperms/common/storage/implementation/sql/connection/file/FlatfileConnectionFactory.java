@@ -49,6 +49,12 @@ abstract class FlatfileConnectionFactory implements ConnectionFactory {
 
     }
 
+    @Override
+    public boolean hasExclusiveConnections() {
+        // a single connection is shared between all callers
+        return false;
+    }
+
     protected Path getWriteFile() {
         return this.file;
     }
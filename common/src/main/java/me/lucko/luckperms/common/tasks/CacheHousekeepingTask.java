@@ -43,6 +43,7 @@ public class CacheHousekeepingTask implements Runnable {
         }
         for (Group group : this.plugin.getGroupManager().getAll().values()) {
             group.getCachedData().performCacheCleanup();
+            group.cleanupPermissionSnapshots();
         }
     }
 }
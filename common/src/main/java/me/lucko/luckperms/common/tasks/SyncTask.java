@@ -25,12 +25,21 @@
 
 package me.lucko.luckperms.common.tasks;
 
+import com.google.common.collect.ImmutableSet;
+
 import me.lucko.luckperms.common.cache.BufferedRequest;
+import me.lucko.luckperms.common.event.EventDispatcher;
+import me.lucko.luckperms.common.model.Group;
 import me.lucko.luckperms.common.model.manager.group.GroupManager;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 
 import net.luckperms.api.event.cause.CreationCause;
+import net.luckperms.api.node.Node;
 
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -56,25 +65,56 @@ public class SyncTask implements Runnable {
             return;
         }
 
-        // Reload all groups
-        this.plugin.getStorage().loadAllGroups().join();
-        if (!this.plugin.getGroupManager().isLoaded(GroupManager.DEFAULT_GROUP_NAME)) {
-            this.plugin.getStorage().createAndLoadGroup(GroupManager.DEFAULT_GROUP_NAME, CreationCause.INTERNAL).join();
+        // post the events triggered by the sync in batches, rather than as a task each
+        // (the batch is carried over to the storage tasks started by this thread)
+        EventDispatcher.Batch eventBatch = this.plugin.getEventDispatcher().openBatch();
+        try {
+            // Record the current state of each group, so the changed groups can be found after reloading
+            Map<String, ImmutableSet<Node>> groupsBefore = new HashMap<>();
+            for (Group group : this.plugin.getGroupManager().getAll().values()) {
+                groupsBefore.put(group.getName(), group.normalData().asImmutableSet());
+            }
+
+            // Reload groups which have changed
+            this.plugin.getStorage().loadChangedGroups().join();
+            if (!this.plugin.getGroupManager().isLoaded(GroupManager.DEFAULT_GROUP_NAME)) {
+                this.plugin.getStorage().createAndLoadGroup(GroupManager.DEFAULT_GROUP_NAME, CreationCause.INTERNAL).join();
+            }
+
+            // Reload all tracks
+            this.plugin.getStorage().loadAllTracks().join();
+
+            // Reload all online users.
+            this.plugin.getUserManager().loadAllUsers().join();
+
+            this.plugin.performPlatformDataSync();
+
+            // Invalidate the caches of holders inheriting from groups which have changed.
+            // (the changed groups & reloaded users have already invalidated their own caches)
+            this.plugin.getInheritanceIndex().invalidateInheritors(getChangedGroups(groupsBefore));
+        } finally {
+            eventBatch.close();
         }
 
-        // Reload all tracks
-        this.plugin.getStorage().loadAllTracks().join();
-
-        // Reload all online users.
-        this.plugin.getUserManager().loadAllUsers().join();
-
-        this.plugin.performPlatformDataSync();
+        this.plugin.getEventDispatcher().dispatchPostSync();
+    }
 
-        // Just to be sure...
-        this.plugin.getGroupManager().invalidateAllGroupCaches();
-        this.plugin.getUserManager().invalidateAllUserCaches();
+    private Set<String> getChangedGroups(Map<String, ImmutableSet<Node>> groupsBefore) {
+        Map<String, ? extends Group> groupsAfter = this.plugin.getGroupManager().getAll();
 
-        this.plugin.getEventDispatcher().dispatchPostSync();
+        Set<String> changed = new HashSet<>();
+        for (String name : groupsBefore.keySet()) {
+            if (!groupsAfter.containsKey(name)) {
+                changed.add(name);
+            }
+        }
+        for (Group group : groupsAfter.values()) {
+            ImmutableSet<Node> before = groupsBefore.get(group.getName());
+            if (before == null || !before.equals(group.normalData().asImmutableSet())) {
+                changed.add(group.getName());
+            }
+        }
+        return changed;
     }
 
     public static class Buffer extends BufferedRequest<Void> {
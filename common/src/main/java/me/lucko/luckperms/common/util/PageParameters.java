@@ -0,0 +1,69 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.util;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Describes a page of results to be queried from storage.
+ */
+public final class PageParameters {
+    private final int pageSize;
+    private final int pageNumber;
+
+    public PageParameters(int pageSize, int pageNumber) {
+        Preconditions.checkArgument(pageSize > 0, "pageSize must be positive: " + pageSize);
+        Preconditions.checkArgument(pageNumber > 0, "pageNumber cannot be less than 1: " + pageNumber);
+        this.pageSize = pageSize;
+        this.pageNumber = pageNumber;
+    }
+
+    public int getPageSize() {
+        return this.pageSize;
+    }
+
+    public int getPageNumber() {
+        return this.pageNumber;
+    }
+
+    /**
+     * Gets the index of the first result on the page
+     *
+     * @return the offset
+     */
+    public int getOffset() {
+        return (this.pageNumber - 1) * this.pageSize;
+    }
+
+    public int getMaxPages(int totalEntries) {
+        return (int) Math.ceil((double) totalEntries / (double) this.pageSize);
+    }
+
+    @Override
+    public String toString() {
+        return "PageParameters(pageSize=" + this.pageSize + ", pageNumber=" + this.pageNumber + ")";
+    }
+}
@@ -40,6 +40,9 @@ public class ProgressLogger {
 
     private final Set<Sender> listeners = new HashSet<>();
 
+    // when the current operation started, used to calculate throughput
+    private long startTime = System.nanoTime();
+
     public ProgressLogger(Message logMessage, Message logProgressMessage, String logPrefixParam) {
         this.logMessage = logMessage;
         this.logProgressMessage = logProgressMessage;
@@ -66,6 +69,20 @@ public class ProgressLogger {
         dispatchMessage(this.logProgressMessage, msg.replace("{}", Integer.toString(amount)));
     }
 
+    /**
+     * Marks the start of an operation, resetting the time used to
+     * calculate throughput in {@link #logAllProgressWithRate(String, int)}.
+     */
+    public void resetRate() {
+        this.startTime = System.nanoTime();
+    }
+
+    public void logAllProgressWithRate(String msg, int amount) {
+        double seconds = (System.nanoTime() - this.startTime) / 1_000_000_000.0;
+        String rate = seconds > 0 ? String.format("%.1f", amount / seconds) : "-";
+        dispatchMessage(this.logProgressMessage, msg.replace("{}", Integer.toString(amount)) + " (" + rate + "/s)");
+    }
+
     public void logProgress(String msg, int amount, int notifyFrequency) {
         if (amount % notifyFrequency == 0) {
             logAllProgress(msg, amount);
@@ -0,0 +1,98 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.verbose;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * A bounded, lock-free ring buffer of verbose events waiting to be handled.
+ *
+ * <p>Events can be offered by any number of threads, but the buffer must only
+ * be drained by one thread at a time. The backing array is allocated up front,
+ * so offering an event does not allocate. If the buffer is full, offered events
+ * are rejected.</p>
+ */
+final class VerboseEventBuffer<E> {
+    private final AtomicReferenceArray<E> buffer;
+    private final int mask;
+
+    /** The sequence number of the next slot to be claimed by a producer */
+    private final AtomicLong tail = new AtomicLong();
+    /** The sequence number of the next slot to be read by the consumer */
+    private volatile long head = 0;
+
+    VerboseEventBuffer(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+        this.buffer = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Offers an event to the buffer.
+     *
+     * @param event the event
+     * @return true if the event was added, false if the buffer was full
+     */
+    public boolean offer(E event) {
+        long seq;
+        do {
+            seq = this.tail.get();
+            if (seq - this.head > this.mask) {
+                return false;
+            }
+        } while (!this.tail.compareAndSet(seq, seq + 1));
+
+        this.buffer.lazySet((int) (seq & this.mask), event);
+        return true;
+    }
+
+    /**
+     * Removes all published events from the buffer, passing them to the consumer
+     * in the order they were offered.
+     *
+     * @param consumer the consumer
+     */
+    public void drain(Consumer<? super E> consumer) {
+        long head = this.head;
+        long tail = this.tail.get();
+
+        for (; head < tail; head++) {
+            int index = (int) (head & this.mask);
+            E event = this.buffer.get(index);
+            if (event == null) {
+                // the slot has been claimed but not yet written - pick it up next time
+                break;
+            }
+            this.buffer.lazySet(index, null);
+            this.head = head + 1;
+            consumer.accept(event);
+        }
+    }
+}
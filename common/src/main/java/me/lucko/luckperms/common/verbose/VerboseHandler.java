@@ -26,6 +26,7 @@
 package me.lucko.luckperms.common.verbose;
 
 import me.lucko.luckperms.common.calculator.result.TristateResult;
+import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.plugin.scheduler.SchedulerAdapter;
 import me.lucko.luckperms.common.plugin.scheduler.SchedulerTask;
 import me.lucko.luckperms.common.sender.Sender;
@@ -35,37 +36,46 @@ import me.lucko.luckperms.common.verbose.event.VerboseEvent;
 
 import net.luckperms.api.query.QueryOptions;
 
+import java.util.Arrays;
 import java.util.Map;
-import java.util.Queue;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Accepts {@link VerboseEvent}s and passes them onto registered {@link VerboseListener}s.
  */
 public class VerboseHandler implements AutoCloseable {
 
+    /** The number of events which can be buffered between ticks */
+    private static final int BUFFER_CAPACITY = 1 << 15;
+
     /** A map of currently registered listeners */
     private final Map<UUID, VerboseListener> listeners;
-    /** A queue of verbose events to be handled */
-    private final Queue<VerboseEvent> queue;
+    /** A snapshot of the registered listeners, iterated when a check is made */
+    private volatile VerboseListener[] listenerArray = new VerboseListener[0];
+    /** A buffer of verbose events to be handled */
+    private final VerboseEventBuffer<MatchedEvent> buffer;
     /** If there are any listeners registered */
     private boolean listening = false;
+    /** How often a stack trace should be captured for matched checks - every Nth check, or never if 0 */
+    private volatile int traceSampling = 1;
+    /** The number of matched checks, used to sample traces */
+    private final AtomicLong traceCounter = new AtomicLong();
     /** The tick task */
     private final SchedulerTask task;
 
     public VerboseHandler(SchedulerAdapter scheduler) {
         this.listeners = new ConcurrentHashMap<>();
-        this.queue = new ConcurrentLinkedQueue<>();
+        this.buffer = new VerboseEventBuffer<>(BUFFER_CAPACITY);
         this.task = scheduler.asyncRepeating(this::tick, 100, TimeUnit.MILLISECONDS);
     }
 
     /**
      * Offers permission check data to the handler, to be eventually passed onto listeners.
      *
-     * <p>The check data is added to a queue to be processed later, to avoid blocking
+     * <p>The check data is added to a buffer to be processed later, to avoid blocking
      * the main thread each time a permission check is made.</p>
      *
      * @param origin the origin of the check
@@ -81,17 +91,15 @@ public class VerboseHandler implements AutoCloseable {
         }
 
         long time = System.currentTimeMillis();
-        Throwable trace = new Throwable();
         String thread = Thread.currentThread().getName();
 
-        // add the check data to a queue to be processed later.
-        this.queue.offer(new PermissionCheckEvent(origin, checkTarget, checkQueryOptions, time, trace, thread, permission, result));
+        offer(new PermissionCheckEvent(origin, checkTarget, checkQueryOptions, time, thread, permission, result));
     }
 
     /**
      * Offers meta check data to the handler, to be eventually passed onto listeners.
      *
-     * <p>The check data is added to a queue to be processed later, to avoid blocking
+     * <p>The check data is added to a buffer to be processed later, to avoid blocking
      * the main thread each time a meta check is made.</p>
      *
      * @param origin the origin of the check
@@ -107,11 +115,55 @@ public class VerboseHandler implements AutoCloseable {
         }
 
         long time = System.currentTimeMillis();
-        Throwable trace = new Throwable();
         String thread = Thread.currentThread().getName();
 
-        // add the check data to a queue to be processed later.
-        this.queue.offer(new MetaCheckEvent(origin, checkTarget, checkQueryOptions, time, trace, thread, key, result));
+        offer(new MetaCheckEvent(origin, checkTarget, checkQueryOptions, time, thread, key, result));
+    }
+
+    private void offer(VerboseEvent event) {
+        // test the event against each listener's filter before doing anything else,
+        // so checks nobody is interested in are discarded straight away
+        VerboseListener[] listeners = this.listenerArray;
+        VerboseListener[] matched = null;
+        int matchedCount = 0;
+        for (VerboseListener listener : listeners) {
+            if (listener.test(event)) {
+                if (matched == null) {
+                    matched = new VerboseListener[listeners.length];
+                }
+                matched[matchedCount++] = listener;
+            }
+        }
+        if (matched == null) {
+            return;
+        }
+
+        // record which listeners matched, so the filters aren't evaluated again on delivery
+        if (matchedCount == listeners.length) {
+            matched = listeners;
+        } else if (matchedCount != matched.length) {
+            matched = Arrays.copyOf(matched, matchedCount);
+        }
+
+        // the trace has to be captured here, on the thread where the check took place
+        if (shouldCaptureTrace()) {
+            event.captureCheckTrace();
+        }
+
+        // add the check data to a buffer to be processed later.
+        if (!this.buffer.offer(new MatchedEvent(event, matched))) {
+            for (VerboseListener listener : matched) {
+                listener.dropEvent(event);
+            }
+        }
+    }
+
+    private boolean shouldCaptureTrace() {
+        int sampling = this.traceSampling;
+        if (sampling <= 1) {
+            return sampling == 1;
+        }
+        return this.traceCounter.getAndIncrement() % sampling == 0;
     }
 
     /**
@@ -125,8 +177,9 @@ public class VerboseHandler implements AutoCloseable {
         // flush out anything before this listener was added
         flush();
 
+        this.traceSampling = sender.getPlugin().getConfiguration().get(ConfigKeys.VERBOSE_TRACE_SAMPLING);
         this.listeners.put(sender.getUniqueId(), new VerboseListener(sender, filter, notify));
-        this.listening = true;
+        updateListeners();
     }
 
     /**
@@ -139,29 +192,38 @@ public class VerboseHandler implements AutoCloseable {
         // immediately flush, so the listener gets all current data
         flush();
 
-        return this.listeners.remove(sender.getUniqueId());
+        VerboseListener listener = this.listeners.remove(sender.getUniqueId());
+        updateListeners();
+        return listener;
+    }
+
+    private void updateListeners() {
+        this.listenerArray = this.listeners.values().toArray(new VerboseListener[0]);
+        this.listening = this.listenerArray.length != 0;
     }
 
     private void tick() {
         // remove listeners where the sender is no longer valid
-        this.listeners.values().removeIf(l -> !l.getNotifiedSender().isValid());
+        if (this.listeners.values().removeIf(l -> !l.getNotifiedSender().isValid())) {
+            updateListeners();
+        }
 
-        // handle all events in the queue
+        // handle all events in the buffer
         flush();
-
-        // update listening state
-        this.listening = !this.listeners.isEmpty();
     }
 
     /**
      * Flushes the pending events to listeners.
      */
     public synchronized void flush() {
-        for (VerboseEvent e; (e = this.queue.poll()) != null; ) {
-            for (VerboseListener listener : this.listeners.values()) {
-                listener.acceptEvent(e);
+        this.buffer.drain(e -> {
+            for (VerboseListener listener : e.listeners) {
+                // skip listeners which were unregistered after the event was matched
+                if (this.listeners.get(listener.getNotifiedSender().getUniqueId()) == listener) {
+                    listener.acceptEvent(e.event);
+                }
             }
-        }
+        });
     }
 
     @Override
@@ -169,4 +231,17 @@ public class VerboseHandler implements AutoCloseable {
         this.task.cancel();
     }
 
+    /**
+     * A buffered event, along with the listeners whose filters it passed.
+     */
+    private static final class MatchedEvent {
+        private final VerboseEvent event;
+        private final VerboseListener[] listeners;
+
+        MatchedEvent(VerboseEvent event, VerboseListener[] listeners) {
+            this.event = event;
+            this.listeners = listeners;
+        }
+    }
+
 }
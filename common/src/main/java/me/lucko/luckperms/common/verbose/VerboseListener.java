@@ -61,6 +61,7 @@ import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
 import java.util.zip.GZIPOutputStream;
 
@@ -109,10 +110,13 @@ public class VerboseListener {
     // if we should notify the sender
     private final boolean notify;
     // the number of events we have processed
-    private final AtomicInteger counter = new AtomicInteger(0);
+    private final LongAdder counter = new LongAdder();
     // the number of events we have processed and accepted, based on the filter rules for this
     // listener
     private final AtomicInteger matchedCounter = new AtomicInteger(0);
+    // the number of events which passed the filter, but were dropped because the handler's
+    // buffer was full
+    private final AtomicInteger droppedCounter = new AtomicInteger(0);
     // the events which passed the filter, up to a max size of #DATA_TRUNCATION
     private final List<VerboseEvent> results = new ArrayList<>(DATA_TRUNCATION / 10);
 
@@ -123,19 +127,36 @@ public class VerboseListener {
     }
 
     /**
-     * Accepts and processes verbose events.
+     * Tests whether the event passes this listener's filter, and counts it as processed.
      *
-     * @param event the event to process
+     * <p>Called on the thread where the check took place, before the event is queued.</p>
+     *
+     * @param event the event to test
+     * @return if the event passes the filter
      */
-    public void acceptEvent(VerboseEvent event) {
+    public boolean test(VerboseEvent event) {
         // increment handled counter
-        this.counter.incrementAndGet();
+        this.counter.increment();
 
-        // check if the data passes our filter
-        if (!this.filter.evaluate(event)) {
-            return;
-        }
+        return this.filter.evaluate(event);
+    }
+
+    /**
+     * Records that an event which passed the filter was dropped before it could
+     * be passed to the listener.
+     *
+     * @param event the event which was dropped
+     */
+    public void dropEvent(VerboseEvent event) {
+        this.droppedCounter.incrementAndGet();
+    }
 
+    /**
+     * Accepts and processes a verbose event which has already passed the filter.
+     *
+     * @param event the event to process
+     */
+    public void acceptEvent(VerboseEvent event) {
         // increment the matched filter
         this.matchedCounter.incrementAndGet();
 
@@ -222,17 +243,20 @@ public class VerboseListener {
             hover.add("&bContext: &r" + MessageUtils.contextSetToString(this.notifiedSender.getPlugin().getLocaleManager(), event.getCheckQueryOptions().context()));
         }
         hover.add("&bThread: &r" + event.getCheckThread());
-        hover.add("&bTrace: &r");
 
-        Consumer<StackTraceElement> printer = StackTracePrinter.elementToString(str -> hover.add("&7" + str));
-        int overflow;
-        if (shouldFilterStackTrace(event)) {
-            overflow = CHAT_FILTERED_PRINTER.process(event.getCheckTrace(), printer);
-        } else {
-            overflow = CHAT_UNFILTERED_PRINTER.process(event.getCheckTrace(), printer);
-        }
-        if (overflow != 0) {
-            hover.add("&f... and " + overflow + " more");
+        if (event.hasCheckTrace()) {
+            hover.add("&bTrace: &r");
+
+            Consumer<StackTraceElement> printer = StackTracePrinter.elementToString(str -> hover.add("&7" + str));
+            int overflow;
+            if (shouldFilterStackTrace(event)) {
+                overflow = CHAT_FILTERED_PRINTER.process(event.getCheckTrace(), printer);
+            } else {
+                overflow = CHAT_UNFILTERED_PRINTER.process(event.getCheckTrace(), printer);
+            }
+            if (overflow != 0) {
+                hover.add("&f... and " + overflow + " more");
+            }
         }
 
         // send the message
@@ -261,7 +285,7 @@ public class VerboseListener {
         String startDate = DATE_FORMAT.format(this.startTime);
         String endDate = DATE_FORMAT.format(Instant.now());
         String duration = DurationFormatter.CONCISE.format(Duration.between(this.startTime, Instant.now()));
-        boolean truncated = this.matchedCounter.get() > this.results.size();
+        boolean truncated = this.matchedCounter.get() > this.results.size() || this.droppedCounter.get() != 0;
 
         JObject metadata = new JObject()
                 .add("startTime", startDate)
@@ -269,7 +293,8 @@ public class VerboseListener {
                 .add("duration", duration)
                 .add("count", new JObject()
                         .add("matched", this.matchedCounter.get())
-                        .add("total", this.counter.get())
+                        .add("total", this.counter.sum())
+                        .add("dropped", this.droppedCounter.get())
                 )
                 .add("uploader", new JObject()
                         .add("name", this.notifiedSender.getNameWithLocation())
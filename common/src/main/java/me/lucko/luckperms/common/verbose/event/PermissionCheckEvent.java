@@ -47,8 +47,8 @@ public class PermissionCheckEvent extends VerboseEvent {
      */
     private final TristateResult result;
 
-    public PermissionCheckEvent(Origin origin, String checkTarget, QueryOptions checkQueryOptions, long checkTime, Throwable checkTrace, String checkThread, String permission, TristateResult result) {
-        super(checkTarget, checkQueryOptions, checkTime, checkTrace, checkThread);
+    public PermissionCheckEvent(Origin origin, String checkTarget, QueryOptions checkQueryOptions, long checkTime, String checkThread, String permission, TristateResult result) {
+        super(checkTarget, checkQueryOptions, checkTime, checkThread);
         this.origin = origin;
         this.permission = permission;
         this.result = result;
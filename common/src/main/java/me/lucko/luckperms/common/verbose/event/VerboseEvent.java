@@ -36,12 +36,15 @@ import net.luckperms.api.context.Context;
 import net.luckperms.api.query.QueryMode;
 import net.luckperms.api.query.QueryOptions;
 
+import org.checkerframework.checker.nullness.qual.Nullable;
+
 import java.util.Objects;
 
 /**
  * Represents a verbose event.
  */
 public abstract class VerboseEvent implements VariableEvaluator {
+    private static final StackTraceElement[] NO_TRACE = new StackTraceElement[0];
 
     /**
      * The name of the entity which was checked
@@ -59,23 +62,31 @@ public abstract class VerboseEvent implements VariableEvaluator {
     private final long checkTime;
 
     /**
-     * The throwable created when the check took place
+     * The throwable created when the check took place, or null if a trace was not captured
      */
-    private final Throwable checkTrace;
+    private @Nullable Throwable checkTrace = null;
 
     /**
      * The name of the thread where the check took place
      */
     private final String checkThread;
 
-    protected VerboseEvent(String checkTarget, QueryOptions checkQueryOptions, long checkTime, Throwable checkTrace, String checkThread) {
+    protected VerboseEvent(String checkTarget, QueryOptions checkQueryOptions, long checkTime, String checkThread) {
         this.checkTarget = checkTarget;
         this.checkQueryOptions = checkQueryOptions;
         this.checkTime = checkTime;
-        this.checkTrace = checkTrace;
         this.checkThread = checkThread;
     }
 
+    /**
+     * Captures a stack trace for the check.
+     *
+     * <p>Must be called on the thread where the check took place.</p>
+     */
+    public void captureCheckTrace() {
+        this.checkTrace = new Throwable();
+    }
+
     public String getCheckTarget() {
         return this.checkTarget;
     }
@@ -88,8 +99,12 @@ public abstract class VerboseEvent implements VariableEvaluator {
         return this.checkTime;
     }
 
+    public boolean hasCheckTrace() {
+        return this.checkTrace != null;
+    }
+
     public StackTraceElement[] getCheckTrace() {
-        return this.checkTrace.getStackTrace();
+        return this.checkTrace == null ? NO_TRACE : this.checkTrace.getStackTrace();
     }
 
     public String getCheckThread() {
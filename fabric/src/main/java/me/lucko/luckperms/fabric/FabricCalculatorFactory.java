@@ -32,6 +32,7 @@ import me.lucko.luckperms.common.calculator.PermissionCalculator;
 import me.lucko.luckperms.common.calculator.processor.MapProcessor;
 import me.lucko.luckperms.common.calculator.processor.PermissionProcessor;
 import me.lucko.luckperms.common.calculator.processor.RegexProcessor;
+import me.lucko.luckperms.common.calculator.processor.TrieProcessor;
 import me.lucko.luckperms.common.calculator.processor.WildcardProcessor;
 import me.lucko.luckperms.common.config.ConfigKeys;
 import net.luckperms.api.query.QueryOptions;
@@ -47,14 +48,21 @@ class FabricCalculatorFactory implements CalculatorFactory {
     public PermissionCalculator build(QueryOptions queryOptions, CacheMetadata metadata) {
         ImmutableList.Builder<PermissionProcessor> processors = ImmutableList.builder();
 
-        processors.add(new MapProcessor());
+        boolean applyRegex = this.plugin.getConfiguration().get(ConfigKeys.APPLYING_REGEX);
+        boolean applyWildcards = this.plugin.getConfiguration().get(ConfigKeys.APPLYING_WILDCARDS);
 
-        if (this.plugin.getConfiguration().get(ConfigKeys.APPLYING_REGEX)) {
-            processors.add(new RegexProcessor());
-        }
+        if (this.plugin.getConfiguration().get(ConfigKeys.COMPILED_PERMISSION_LOOKUPS)) {
+            processors.add(new TrieProcessor(applyRegex, applyWildcards));
+        } else {
+            processors.add(new MapProcessor());
+
+            if (applyRegex) {
+                processors.add(new RegexProcessor());
+            }
 
-        if (this.plugin.getConfiguration().get(ConfigKeys.APPLYING_WILDCARDS)) {
-            processors.add(new WildcardProcessor());
+            if (applyWildcards) {
+                processors.add(new WildcardProcessor());
+            }
         }
 
         return new PermissionCalculator(this.plugin, metadata, processors.build());
@@ -27,24 +27,22 @@ package me.lucko.luckperms.fabric;
 
 import me.lucko.luckperms.common.plugin.scheduler.AbstractJavaScheduler;
 
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Executor;
+import java.util.Map;
 
 class FabricSchedulerAdapter extends AbstractJavaScheduler {
-    private final Executor serverExecutor;
+    private final FabricSyncExecutor serverExecutor;
 
     public FabricSchedulerAdapter(LPFabricBootstrap bootstrap) {
-        this.serverExecutor = r -> {
-            try {
-                bootstrap.getServer().submit(r).get();
-            } catch (InterruptedException | ExecutionException e) {
-                throw new RuntimeException(e);
-            }
-        };
+        this.serverExecutor = new FabricSyncExecutor(bootstrap);
     }
 
     @Override
-    public Executor sync() {
+    public FabricSyncExecutor sync() {
         return this.serverExecutor;
     }
+
+    @Override
+    public Map<String, String> getSyncMeta() {
+        return this.serverExecutor.getMeta();
+    }
 }
@@ -0,0 +1,159 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.fabric;
+
+import net.minecraft.server.MinecraftServer;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A non-blocking {@link Executor} which runs tasks on the server thread.
+ *
+ * <p>Tasks submitted from other threads are queued, and a single drain task is
+ * scheduled onto the server's task queue, which runs at the start of the next
+ * tick. The drain keeps running tasks until the queue is empty, including tasks
+ * queued whilst it runs, so each tick runs at most one drain. Tasks submitted
+ * from the server thread are run immediately.</p>
+ *
+ * <p>For each tick which runs a drain, the number of tasks waiting when it
+ * started, the number of tasks it ran and the longest time one of them waited
+ * are recorded, and shown by the info command.</p>
+ */
+public class FabricSyncExecutor implements Executor {
+    private final LPFabricBootstrap bootstrap;
+
+    private final Queue<QueuedTask> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+
+    // metrics - only written by the server thread
+    private volatile long totalTasks = 0;
+    private volatile int lastTickDepth = 0;
+    private volatile int lastTickTasks = 0;
+    private volatile long lastTickMaxLatency = 0;
+    private volatile int peakTickTasks = 0;
+    private volatile long peakLatency = 0;
+
+    public FabricSyncExecutor(LPFabricBootstrap bootstrap) {
+        this.bootstrap = bootstrap;
+    }
+
+    @Override
+    public void execute(@NonNull Runnable command) {
+        MinecraftServer server = this.bootstrap.getServer();
+        if (server.isOnThread()) {
+            command.run();
+            return;
+        }
+
+        this.queue.add(new QueuedTask(command, System.nanoTime()));
+        this.queueDepth.incrementAndGet();
+
+        // only one drain task needs to be waiting on the server's queue at a time
+        if (this.drainScheduled.compareAndSet(false, true)) {
+            server.submit(this::drain);
+        }
+    }
+
+    private void drain() {
+        int depth = this.queueDepth.get();
+        int count = 0;
+        long maxLatency = 0;
+
+        while (true) {
+            QueuedTask task;
+            while ((task = this.queue.poll()) != null) {
+                this.queueDepth.decrementAndGet();
+                count++;
+                maxLatency = Math.max(maxLatency, System.nanoTime() - task.queuedAt);
+
+                try {
+                    task.runnable.run();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+
+            // the flag is only reset once the queue is empty, so tasks queued during the drain are
+            // picked up by this loop. recheck after resetting, in case a task was queued in between
+            this.drainScheduled.set(false);
+            if (this.queue.isEmpty() || !this.drainScheduled.compareAndSet(false, true)) {
+                break;
+            }
+        }
+
+        if (count == 0) {
+            return;
+        }
+
+        this.totalTasks += count;
+        this.lastTickDepth = depth;
+        this.lastTickTasks = count;
+        this.lastTickMaxLatency = maxLatency;
+        if (count > this.peakTickTasks) {
+            this.peakTickTasks = count;
+        }
+        if (maxLatency > this.peakLatency) {
+            this.peakLatency = maxLatency;
+        }
+    }
+
+    /**
+     * Gets the recorded metrics, formatted for display in the info command.
+     *
+     * @return the metrics
+     */
+    public Map<String, String> getMeta() {
+        Map<String, String> meta = new LinkedHashMap<>();
+        meta.put("Queued", "&a" + this.queueDepth.get());
+        meta.put("Last tick", "&a" + this.lastTickTasks + " &7tasks (&a" + this.lastTickDepth + "&7 queued at start), waited up to &a" + toMillis(this.lastTickMaxLatency) + "ms");
+        meta.put("Peak", "&a" + this.peakTickTasks + " &7tasks per tick, waited up to &a" + toMillis(this.peakLatency) + "ms");
+        meta.put("Total", "&a" + this.totalTasks + " &7tasks");
+        return meta;
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    private static final class QueuedTask {
+        private final Runnable runnable;
+        private final long queuedAt;
+
+        private QueuedTask(Runnable runnable, long queuedAt) {
+            this.runnable = runnable;
+            this.queuedAt = queuedAt;
+        }
+    }
+}
@@ -88,6 +88,14 @@ public class FabricContextManager extends ContextManager<ServerPlayerEntity, Ser
         }
     }
 
+    @Override
+    protected void invalidateAllCaches() {
+        super.invalidateAllCaches();
+        for (QueryOptionsCache<ServerPlayerEntity> cache : this.subjectCaches.asMap().values()) {
+            cache.invalidate();
+        }
+    }
+
     public void invalidateCacheOnRespawn(ServerPlayerEntity oldPlayer, ServerPlayerEntity newPlayer) {
         if (oldPlayer == null) {
             throw new NullPointerException("subject");
@@ -28,6 +28,9 @@ package me.lucko.luckperms.fabric.event;
 import com.mojang.authlib.GameProfile;
 import net.fabricmc.fabric.api.event.Event;
 import net.fabricmc.fabric.api.event.EventFactory;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.concurrent.CompletableFuture;
 
 /**
  * TODO: Use Fabric API alternative when merged
@@ -35,10 +38,21 @@ import net.fabricmc.fabric.api.event.EventFactory;
  */
 public interface EarlyLoginCallback {
     Event<EarlyLoginCallback> EVENT = EventFactory.createArrayBacked(EarlyLoginCallback.class, (callbacks) -> (profile) -> {
+        CompletableFuture<String> result = CompletableFuture.completedFuture(null);
         for (EarlyLoginCallback callback : callbacks) {
-            callback.onAccept(profile);
+            // the first callback to deny the login decides the disconnect reason
+            result = result.thenCombine(callback.onAccept(profile), (reason, other) -> reason != null ? reason : other);
         }
+        return result;
     });
 
-    void onAccept(GameProfile profile);
+    /**
+     * Called when a player is about to be accepted by the login network handler.
+     *
+     * <p>The login is held until the returned future completes.</p>
+     *
+     * @param profile the profile of the connecting player
+     * @return a future which completes with the reason to disconnect the player, or null if the login may continue
+     */
+    CompletableFuture<@Nullable String> onAccept(GameProfile profile);
 }
@@ -26,11 +26,15 @@
 package me.lucko.luckperms.fabric.listeners;
 
 import com.mojang.authlib.GameProfile;
+import me.lucko.luckperms.common.locale.message.Message;
 import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.plugin.util.AbstractConnectionListener;
 import me.lucko.luckperms.fabric.LPFabricPlugin;
 import net.minecraft.entity.player.ServerPlayerEntity;
 
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
 public class FabricConnectionListener extends AbstractConnectionListener {
 
     private final LPFabricPlugin plugin;
@@ -46,13 +50,33 @@ public class FabricConnectionListener extends AbstractConnectionListener {
 
     public void onLogin(ServerPlayerEntity playerEntity) {
         GameProfile gameProfile = playerEntity.getGameProfile();
-        this.loadUser(gameProfile.getId(), gameProfile.getName());
+
+        // the user's data is normally loaded while the login is held in #onEarlyLogin,
+        // only load it here if that didn't happen for some reason
+        if (this.plugin.getUserManager().getIfLoaded(gameProfile.getId()) == null) {
+            this.loadUser(gameProfile.getId(), gameProfile.getName());
+        }
     }
 
-    public void onEarlyLogin(GameProfile gameProfile) {
-        // TODO: Use Networking v1 when merged to delay login till database has loaded the user
-        User user = this.loadUser(gameProfile.getId(), gameProfile.getName());
-        this.recordConnection(gameProfile.getId());
-        this.plugin.getEventDispatcher().dispatchPlayerLoginProcess(gameProfile.getId(), gameProfile.getName(), user);
+    public CompletableFuture<String> onEarlyLogin(GameProfile gameProfile) {
+        UUID uniqueId = gameProfile.getId();
+        String username = gameProfile.getName();
+
+        // load the user's data off the network thread - the login is held until this completes
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                User user = this.loadUser(uniqueId, username);
+                this.recordConnection(uniqueId);
+                this.plugin.getEventDispatcher().dispatchPlayerLoginProcess(uniqueId, username, user);
+                return null;
+            } catch (Exception ex) {
+                this.plugin.getLogger().severe("Exception occurred whilst loading data for " + uniqueId + " - " + username);
+                ex.printStackTrace();
+
+                // deny the connection
+                this.plugin.getEventDispatcher().dispatchPlayerLoginProcess(uniqueId, username, null);
+                return Message.LOADING_DATABASE_ERROR.asString(this.plugin.getLocaleManager());
+            }
+        }, this.plugin.getBootstrap().getScheduler().async());
     }
 }
@@ -41,7 +41,7 @@ public class FabricEventListeners {
      */
     @Deprecated
     public void onWorldChange(ServerWorld origin, ServerWorld destination, ServerPlayerEntity player) {
-        this.plugin.getContextManager().invalidateCache(player);
+        this.plugin.getContextManager().signalContextUpdate(player);
     }
 
     /**
@@ -31,20 +31,55 @@ import net.minecraft.server.network.ServerLoginNetworkHandler;
 import org.objectweb.asm.Opcodes;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.Unique;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 
+import java.util.concurrent.CompletableFuture;
+
 @Mixin(ServerLoginNetworkHandler.class)
 abstract class ServerLoginNetworkHandlerMixin {
     @Shadow
     private GameProfile profile;
 
+    @Shadow
+    public abstract void disconnect(String reason);
+
+    @Unique
+    private CompletableFuture<String> luckperms_loginFuture;
+
+    /*
+     * The handler calls acceptPlayer every tick while the player is waiting to be accepted,
+     * so the login can be held (without blocking the network thread) by cancelling the call
+     * until the user's data has loaded.
+     */
     @Inject(
             at = @At(value = "FIELD", target = "Lnet/minecraft/server/network/ServerLoginNetworkHandler;state:Lnet/minecraft/server/network/ServerLoginNetworkHandler$State;", opcode = Opcodes.PUTFIELD),
-            method = "acceptPlayer()V"
+            method = "acceptPlayer()V",
+            cancellable = true
     )
     private void luckperms_prepareLogin(CallbackInfo ci) {
-        EarlyLoginCallback.EVENT.invoker().onAccept(this.profile);
+        if (this.luckperms_loginFuture == null) {
+            this.luckperms_loginFuture = EarlyLoginCallback.EVENT.invoker().onAccept(this.profile);
+        }
+
+        if (!this.luckperms_loginFuture.isDone()) {
+            ci.cancel();
+            return;
+        }
+
+        String reason;
+        try {
+            reason = this.luckperms_loginFuture.join();
+        } catch (Exception e) {
+            e.printStackTrace();
+            reason = "An unexpected error occurred whilst setting up your permissions data. Please try again later.";
+        }
+
+        if (reason != null) {
+            ci.cancel();
+            this.disconnect(reason);
+        }
     }
 }